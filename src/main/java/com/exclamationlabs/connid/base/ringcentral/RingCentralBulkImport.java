@@ -0,0 +1,377 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral;
+
+import com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserAttribute;
+import com.exclamationlabs.connid.base.ringcentral.configuration.RingCentralConfiguration;
+import com.exclamationlabs.connid.base.ringcentral.driver.rest.RingCentralCreatePipeline;
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import com.google.gson.*;
+import org.apache.commons.lang3.StringUtils;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.objects.Attribute;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Creates the users of a JSON lines or CSV file keyed by {@link RingCentralUserAttribute} names.
+ * Users already in the journal are skipped and failed users are written to the error file.
+ */
+public class RingCentralBulkImport {
+
+    private static final Log LOG = Log.getLog(RingCentralBulkImport.class);
+
+    static final int DEFAULT_WORKERS = 4;
+
+    private final RingCentralConnector connector;
+    private final int workers;
+    private final Gson gson = new Gson();
+
+    public RingCentralBulkImport(RingCentralConnector connector, int workers) {
+        this.connector = connector;
+        this.workers = workers;
+    }
+
+    /**
+     * Usage: {@code RingCentralBulkImport <configuration.properties> <users.jsonl|users.csv> [workers]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RingCentralBulkImport <configuration.properties> <users.jsonl|users.csv> [workers]");
+            System.exit(2);
+        }
+        RingCentralConnector connector = new RingCentralConnector();
+        connector.init(loadConfiguration(Paths.get(args[0])));
+        Result result;
+        try {
+            Path input = Paths.get(args[1]);
+            int workers = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_WORKERS;
+            result = new RingCentralBulkImport(connector, workers).run(input,
+                    Paths.get(input + ".journal"), Paths.get(input + ".errors"));
+        } finally {
+            connector.dispose();
+        }
+        System.out.println(result);
+        System.exit(result.getFailed() > 0 ? 1 : 0);
+    }
+
+    public Result run(Path input, Path journal, Path errors) throws IOException {
+        Set<String> imported = readJournal(journal);
+        boolean csv = StringUtils.endsWithIgnoreCase(input.getFileName().toString(), ".csv");
+        Result result = new Result();
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             Writer journalWriter = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             Writer errorWriter = Files.newBufferedWriter(errors, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             // closed first, which waits for the creates still in progress
+             RingCentralCreatePipeline pipeline =
+                     new RingCentralCreatePipeline(connector.getRingCentralDriver(), workers)) {
+            List<String> header = null;
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null && writeFailure.get() == null) {
+                lineNumber++;
+                if (StringUtils.isBlank(line)) {
+                    continue;
+                }
+                if (csv && header == null) {
+                    header = parseCsvLine(line);
+                    continue;
+                }
+                final int recordLine = lineNumber;
+                String key = "line:" + recordLine;
+                RingCentralUser user;
+                try {
+                    user = connector.getUsersAdapter().buildUser(
+                            csv ? csvAttributes(header, parseCsvLine(line)) : jsonAttributes(line));
+                    if (StringUtils.isNotBlank(user.getUserName())) {
+                        key = StringUtils.lowerCase(user.getUserName());
+                    }
+                    if (imported.contains(key)) {
+                        result.skipped.incrementAndGet();
+                        continue;
+                    }
+                    if (user.getEmails().isEmpty()) {
+                        throw new ConnectorException("EMAIL is required to create a user");
+                    }
+                } catch (RuntimeException e) {
+                    writeError(errorWriter, recordLine, key, e, writeFailure);
+                    result.failed.incrementAndGet();
+                    continue;
+                }
+
+                final String recordKey = key;
+                pipeline.submit(user).whenComplete((userId, failure) -> {
+                    if (failure == null) {
+                        write(journalWriter, recordKey + "\t" + userId, writeFailure);
+                        result.created.incrementAndGet();
+                    } else {
+                        writeError(errorWriter, recordLine, recordKey,
+                                failure instanceof CompletionException ? failure.getCause() : failure, writeFailure);
+                        result.failed.incrementAndGet();
+                    }
+                });
+            }
+        }
+        if (writeFailure.get() != null) {
+            throw writeFailure.get();
+        }
+        return result;
+    }
+
+    static Set<String> readJournal(Path journal) throws IOException {
+        Set<String> imported = new HashSet<>();
+        if (Files.exists(journal)) {
+            for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+                // a line cut short by an interrupted run has no id and is imported again
+                int separator = line.indexOf('\t');
+                if (separator > 0 && separator < line.length() - 1) {
+                    imported.add(line.substring(0, separator));
+                }
+            }
+        }
+        return imported;
+    }
+
+    private void writeError(Writer errorWriter, int line, String key, Throwable failure,
+                            AtomicReference<IOException> writeFailure) {
+        LOG.info("Import of {0} from line {1} failed: {2}", key, line, failure.getMessage());
+        JsonObject error = new JsonObject();
+        error.addProperty("line", line);
+        error.addProperty("key", key);
+        error.addProperty("error", failure.getClass().getSimpleName() + ": " + failure.getMessage());
+        write(errorWriter, gson.toJson(error), writeFailure);
+    }
+
+    private static void write(Writer writer, String line, AtomicReference<IOException> writeFailure) {
+        synchronized (writer) {
+            try {
+                writer.write(line);
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                writeFailure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    private static Set<Attribute> jsonAttributes(String line) {
+        JsonObject record;
+        try {
+            record = JsonParser.parseString(line).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new ConnectorException("Invalid JSON line: " + e.getMessage(), e);
+        }
+        Set<Attribute> attributes = new HashSet<>();
+        for (Map.Entry<String, JsonElement> field : record.entrySet()) {
+            if (!field.getValue().isJsonNull()) {
+                attributes.add(toAttribute(field.getKey(), field.getValue().getAsString()));
+            }
+        }
+        return attributes;
+    }
+
+    private static Set<Attribute> csvAttributes(List<String> header, List<String> values) {
+        if (values.size() > header.size()) {
+            throw new ConnectorException("CSV line has " + values.size() + " values for " + header.size() + " columns");
+        }
+        Set<Attribute> attributes = new HashSet<>();
+        for (int i = 0; i < values.size(); i++) {
+            if (StringUtils.isNotEmpty(values.get(i))) {
+                attributes.add(toAttribute(header.get(i), values.get(i)));
+            }
+        }
+        return attributes;
+    }
+
+    private static Attribute toAttribute(String name, String value) {
+        RingCentralUserAttribute attribute;
+        try {
+            attribute = RingCentralUserAttribute.valueOf(StringUtils.trim(name));
+        } catch (IllegalArgumentException e) {
+            throw new ConnectorException("Unknown user attribute " + name);
+        }
+        if (attribute == RingCentralUserAttribute.ACTIVE) {
+            Boolean active = parseBoolean(value);
+            if (active == null) {
+                throw new ConnectorException("Invalid ACTIVE value " + value + ", expected true or false");
+            }
+            return AttributeBuilder.build(attribute.name(), active);
+        }
+        return AttributeBuilder.build(attribute.name(), value);
+    }
+
+    /**
+     * Values may be quoted, with "" for a quote, but may not span lines.
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            throw new ConnectorException("Unterminated quote in CSV line");
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    /**
+     * Build the configuration from bean properties, e.g. {@code serviceUrl=https://platform.ringcentral.com/}.
+     */
+    static RingCentralConfiguration loadConfiguration(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        RingCentralConfiguration configuration = new RingCentralConfiguration();
+        for (String name : properties.stringPropertyNames()) {
+            setProperty(configuration, name, properties.getProperty(name));
+        }
+        return configuration;
+    }
+
+    private static void setProperty(RingCentralConfiguration configuration, String name, String value) {
+        switch (name) {
+            case "serviceUrl":
+                configuration.setServiceUrl(value);
+                break;
+            case "tokenUrl":
+                configuration.setTokenUrl(value);
+                break;
+            case "oauth2Username":
+                configuration.setOauth2Username(value);
+                break;
+            case "oauth2Password":
+                configuration.setOauth2Password(value);
+                break;
+            case "encodedSecret":
+                configuration.setEncodedSecret(value);
+                break;
+            case "preferredCallQueueIds":
+                configuration.setPreferredCallQueueIds(value);
+                break;
+            case "preferredCallQueuesOnly":
+                configuration.setPreferredCallQueuesOnly(parseBoolean(name, value));
+                break;
+            case "rateLimitStateFile":
+                configuration.setRateLimitStateFile(value);
+                break;
+            case "userListPrefetch":
+                configuration.setUserListPrefetch(parseInteger(name, value));
+                break;
+            case "callQueueMemberHydration":
+                configuration.setCallQueueMemberHydration(parseInteger(name, value));
+                break;
+            case "userCacheSize":
+                configuration.setUserCacheSize(parseInteger(name, value));
+                break;
+            case "userCacheTtl":
+                configuration.setUserCacheTtl(parseInteger(name, value));
+                break;
+            case "userBulkSize":
+                configuration.setUserBulkSize(parseInteger(name, value));
+                break;
+            case "userBulkWindow":
+                configuration.setUserBulkWindow(parseInteger(name, value));
+                break;
+            case "callQueueAssignWindow":
+                configuration.setCallQueueAssignWindow(parseInteger(name, value));
+                break;
+            default:
+                throw new ConnectorException("Unknown configuration property " + name);
+        }
+    }
+
+    private static Integer parseInteger(String name, String value) {
+        try {
+            return Integer.valueOf(StringUtils.trim(value));
+        } catch (NumberFormatException e) {
+            throw new ConnectorException("Invalid value for configuration property " + name, e);
+        }
+    }
+
+    private static Boolean parseBoolean(String name, String value) {
+        Boolean parsed = parseBoolean(value);
+        if (parsed == null) {
+            throw new ConnectorException("Invalid value for configuration property " + name +
+                    ", expected true or false");
+        }
+        return parsed;
+    }
+
+    /**
+     * @return null unless the value is true or false
+     */
+    private static Boolean parseBoolean(String value) {
+        String trimmed = StringUtils.trim(value);
+        return "true".equalsIgnoreCase(trimmed) || "false".equalsIgnoreCase(trimmed) ? Boolean.valueOf(trimmed) : null;
+    }
+
+    public static class Result {
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        public int getCreated() {
+            return created.get();
+        }
+
+        public int getSkipped() {
+            return skipped.get();
+        }
+
+        public int getFailed() {
+            return failed.get();
+        }
+
+        @Override
+        public String toString() {
+            return "created: " + getCreated() + "; already imported: " + getSkipped() + "; failed: " + getFailed();
+        }
+    }
+}
@@ -20,28 +20,113 @@ import com.exclamationlabs.connid.base.ringcentral.adapter.RingCentralCallQueueA
 import com.exclamationlabs.connid.base.ringcentral.adapter.RingCentralUsersAdapter;
 import com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralCallQueueAttribute;
 import com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserAttribute;
+import com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserProjection;
 import com.exclamationlabs.connid.base.ringcentral.configuration.RingCentralConfiguration;
 import com.exclamationlabs.connid.base.ringcentral.driver.rest.RingCentralDriver;
+import com.exclamationlabs.connid.base.ringcentral.driver.rest.RingCentralUserInvocator;
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.objects.*;
+import org.identityconnectors.framework.common.objects.filter.FilterTranslator;
 import org.identityconnectors.framework.spi.ConnectorClass;
+import org.identityconnectors.framework.spi.SyncTokenResultsHandler;
+import org.identityconnectors.framework.spi.operations.SyncOp;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @ConnectorClass(displayNameKey = "ringcentral.connector.display", configurationClass = RingCentralConfiguration.class)
 
-public class RingCentralConnector extends BaseFullAccessConnector<RingCentralConfiguration> {
+public class RingCentralConnector extends BaseFullAccessConnector<RingCentralConfiguration> implements SyncOp {
+
+    private final RingCentralUsersAdapter usersAdapter = new RingCentralUsersAdapter();
 
     public RingCentralConnector() {
         super(RingCentralConfiguration.class);
         setAuthenticator((Authenticator) new OAuth2TokenPasswordAuthenticator());
 
         setDriver(new RingCentralDriver());
-        setAdapters(new RingCentralUsersAdapter(), new RingCentralCallQueueAdapter());
+        setAdapters(usersAdapter, new RingCentralCallQueueAdapter());
         setEnhancedFiltering(true);
         Set<String> filterSet = new HashSet<>();
         filterSet.add(RingCentralUserAttribute.USER_NAME.name());
         filterSet.add(RingCentralCallQueueAttribute.USER_MEMBERS.name());
+        filterSet.add(RingCentralUserInvocator.SCIM_FILTER_ATTRIBUTE);
         setFilterAttributes(filterSet);
     }
 
+    @Override
+    public FilterTranslator<String> createFilterTranslator(ObjectClass objectClass, OperationOptions options) {
+        if (ObjectClass.ACCOUNT.equals(objectClass)) {
+            return new RingCentralUserFilterTranslator();
+        }
+        return super.createFilterTranslator(objectClass, options);
+    }
+
+    @Override
+    public void executeQuery(ObjectClass objectClass, String query, ResultsHandler resultsHandler,
+                             OperationOptions options) {
+        if (ObjectClass.ACCOUNT.equals(objectClass) && options != null) {
+            RingCentralUserProjection.set(options.getAttributesToGet());
+        }
+        try {
+            super.executeQuery(objectClass, query, resultsHandler, options);
+        } finally {
+            RingCentralUserProjection.clear();
+            // the handler may have stopped the listing early
+            getRingCentralDriver().cancelOpenListings();
+        }
+    }
+
+    /**
+     * Deleted users are not reported by RingCentral.
+     */
+    @Override
+    public void sync(ObjectClass objectClass, SyncToken token, SyncResultsHandler handler, OperationOptions options) {
+        requireUsers(objectClass);
+        SyncToken lastToken = token == null ? getLatestSyncToken(objectClass) : token;
+        if (token != null) {
+            RingCentralSyncToken position = RingCentralSyncToken.parse(token.getValue().toString());
+            RingCentralDriver driver = getRingCentralDriver();
+            for (RingCentralUser user : driver.getUserInvocator().getModifiedSince(driver, position.getQueryStart())) {
+                if (!position.deliver(user.getId(),
+                        RingCentralUserInvocator.parseTimestamp(user.getMeta().getLastModified()))) {
+                    continue;
+                }
+                lastToken = position.toSyncToken();
+                SyncDelta delta = new SyncDeltaBuilder()
+                        .setDeltaType(SyncDeltaType.CREATE_OR_UPDATE)
+                        .setToken(lastToken)
+                        .setObject(usersAdapter.buildConnectorObject(user))
+                        .build();
+                if (!handler.handle(delta)) {
+                    return;
+                }
+            }
+        }
+        if (handler instanceof SyncTokenResultsHandler) {
+            ((SyncTokenResultsHandler) handler).handleResult(lastToken);
+        }
+    }
+
+    @Override
+    public SyncToken getLatestSyncToken(ObjectClass objectClass) {
+        requireUsers(objectClass);
+        RingCentralDriver driver = getRingCentralDriver();
+        return new RingCentralSyncToken(driver.getUserInvocator().getServerTime(driver)).toSyncToken();
+    }
+
+    RingCentralDriver getRingCentralDriver() {
+        return (RingCentralDriver) getDriver();
+    }
+
+    RingCentralUsersAdapter getUsersAdapter() {
+        return usersAdapter;
+    }
+
+    private static void requireUsers(ObjectClass objectClass) {
+        if (!ObjectClass.ACCOUNT.equals(objectClass)) {
+            throw new ConnectorException("Sync is only supported for " + ObjectClass.ACCOUNT_NAME);
+        }
+    }
 }
@@ -0,0 +1,102 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral;
+
+import org.apache.commons.lang3.StringUtils;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.objects.SyncToken;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Newest meta.lastModified delivered and the changes delivered within {@link #OVERLAP} of it,
+ * as {@code lastModified[|id=lastModified,...]}.
+ */
+class RingCentralSyncToken {
+
+    static final Duration OVERLAP = Duration.ofMinutes(1);
+
+    private Instant watermark;
+    private final Map<String, Instant> delivered = new LinkedHashMap<>();
+
+    RingCentralSyncToken(Instant watermark) {
+        this.watermark = watermark;
+    }
+
+    static RingCentralSyncToken parse(String value) {
+        try {
+            String[] parts = StringUtils.split(value, '|');
+            RingCentralSyncToken token = new RingCentralSyncToken(Instant.parse(parts[0]));
+            if (parts.length > 1) {
+                for (String entry : StringUtils.split(parts[1], ',')) {
+                    String id = StringUtils.substringBeforeLast(entry, "=");
+                    token.delivered.put(id, Instant.parse(StringUtils.substringAfterLast(entry, "=")));
+                }
+            }
+            return token;
+        } catch (DateTimeParseException | ArrayIndexOutOfBoundsException e) {
+            throw new ConnectorException("Invalid RingCentral sync token " + value, e);
+        }
+    }
+
+    Instant getQueryStart() {
+        return watermark.minus(OVERLAP);
+    }
+
+    /**
+     * @return false if this change was delivered before
+     */
+    boolean deliver(String id, Instant lastModified) {
+        if (lastModified.equals(delivered.get(id))) {
+            return false;
+        }
+        delivered.remove(id);
+        delivered.put(id, lastModified);
+        if (lastModified.isAfter(watermark)) {
+            watermark = lastModified;
+            prune();
+        }
+        return true;
+    }
+
+    /**
+     * Changes are delivered oldest first, so those now before the overlap are at the head.
+     */
+    private void prune() {
+        Instant start = getQueryStart();
+        Iterator<Instant> oldest = delivered.values().iterator();
+        while (oldest.hasNext() && oldest.next().isBefore(start)) {
+            oldest.remove();
+        }
+    }
+
+    int getDeliveredCount() {
+        return delivered.size();
+    }
+
+    SyncToken toSyncToken() {
+        StringBuilder value = new StringBuilder(watermark.toString());
+        String separator = "|";
+        for (Map.Entry<String, Instant> entry : delivered.entrySet()) {
+            value.append(separator).append(entry.getKey()).append('=').append(entry.getValue());
+            separator = ",";
+        }
+        return new SyncToken(value.toString());
+    }
+}
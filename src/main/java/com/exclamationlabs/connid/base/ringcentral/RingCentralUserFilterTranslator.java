@@ -0,0 +1,105 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral;
+
+import com.exclamationlabs.connid.base.ringcentral.driver.rest.RingCentralUserInvocator;
+import org.identityconnectors.framework.common.objects.Attribute;
+import org.identityconnectors.framework.common.objects.Name;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.identityconnectors.framework.common.objects.filter.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserAttribute.*;
+
+/**
+ * Translates eq, sw, co and gt user filters on {@link #SCIM_PATHS}, combined with and/or, into SCIM filters.
+ */
+public class RingCentralUserFilterTranslator implements FilterTranslator<String> {
+
+    static final Map<String, String> SCIM_PATHS = new HashMap<>();
+
+    static {
+        SCIM_PATHS.put(Uid.NAME, "id");
+        SCIM_PATHS.put(Name.NAME, "userName");
+        SCIM_PATHS.put(USER_NAME.name(), "userName");
+        SCIM_PATHS.put(EMAIL.name(), "emails.value");
+        SCIM_PATHS.put(ACTIVE.name(), "active");
+        SCIM_PATHS.put(FAMILY_NAME.name(), "name.familyName");
+        SCIM_PATHS.put(LAST_MODIFIED.name(), "meta.lastModified");
+    }
+
+    private final ScimExpressionTranslator expressions = new ScimExpressionTranslator();
+
+    @Override
+    public List<String> translate(Filter filter) {
+        if (filter instanceof EqualsFilter && ((EqualsFilter) filter).getAttribute() instanceof Uid) {
+            return Collections.singletonList(((Uid) ((EqualsFilter) filter).getAttribute()).getUidValue());
+        }
+        return expressions.translate(filter).stream()
+                .map(RingCentralUserInvocator::scimFilterQuery)
+                .collect(Collectors.toList());
+    }
+
+    static String expression(Attribute attribute, String operator) {
+        String path = SCIM_PATHS.get(attribute.getName());
+        if (path == null || attribute.getValue() == null || attribute.getValue().size() != 1 ||
+                attribute.getValue().get(0) == null) {
+            return null;
+        }
+        Object value = attribute.getValue().get(0);
+        if (value instanceof Boolean) {
+            return path + " " + operator + " " + value;
+        }
+        return path + " " + operator + " \"" +
+                value.toString().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static class ScimExpressionTranslator extends AbstractFilterTranslator<String> {
+
+        @Override
+        protected String createEqualsExpression(EqualsFilter filter, boolean not) {
+            return not ? null : expression(filter.getAttribute(), "eq");
+        }
+
+        @Override
+        protected String createStartsWithExpression(StartsWithFilter filter, boolean not) {
+            return not ? null : expression(filter.getAttribute(), "sw");
+        }
+
+        @Override
+        protected String createContainsExpression(ContainsFilter filter, boolean not) {
+            return not ? null : expression(filter.getAttribute(), "co");
+        }
+
+        @Override
+        protected String createGreaterThanExpression(GreaterThanFilter filter, boolean not) {
+            return not ? null : expression(filter.getAttribute(), "gt");
+        }
+
+        @Override
+        protected String createAndExpression(String left, String right) {
+            return "(" + left + ") and (" + right + ")";
+        }
+
+        @Override
+        protected String createOrExpression(String left, String right) {
+            return "(" + left + ") or (" + right + ")";
+        }
+    }
+}
@@ -16,7 +16,10 @@ package com.exclamationlabs.connid.base.ringcentral.adapter;
 import com.exclamationlabs.connid.base.connector.adapter.AdapterValueTypeConverter;
 import com.exclamationlabs.connid.base.connector.adapter.BaseAdapter;
 import com.exclamationlabs.connid.base.connector.attribute.ConnectorAttribute;
+import com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserAttribute;
+import com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserProjection;
 import com.exclamationlabs.connid.base.ringcentral.configuration.RingCentralConfiguration;
+import com.exclamationlabs.connid.base.ringcentral.model.request.UserPatchOperation;
 import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
 import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUserAddress;
 import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUserEmail;
@@ -28,8 +31,7 @@ import static com.exclamationlabs.connid.base.connector.attribute.ConnectorAttri
 import static com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserAttribute.*;
 import static org.identityconnectors.framework.common.objects.AttributeInfo.Flags.*;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 
 public class RingCentralUsersAdapter extends BaseAdapter<RingCentralUser, RingCentralConfiguration> {
 
@@ -76,37 +78,60 @@ public class RingCentralUsersAdapter extends BaseAdapter<RingCentralUser, RingCe
         Set<Attribute> attributes = new HashSet<>();
         attributes.add(AttributeBuilder.build(USER_ID.name(), user.getId()));
         attributes.add(AttributeBuilder.build(USER_NAME.name(), user.getUserName()));
-        attributes.add(AttributeBuilder.build(ACTIVE.name(), user.getActive()));
-        attributes.add(AttributeBuilder.build(CREATED.name(), user.getMeta().getCreated()));
-        attributes.add(AttributeBuilder.build(LAST_MODIFIED.name(), user.getMeta().getLastModified()));
-        attributes.add(AttributeBuilder.build(LOCATION_URL.name(), user.getMeta().getLocation()));
-        attributes.add(AttributeBuilder.build(FAMILY_NAME.name(), user.getName().getFamilyName()));
-        attributes.add(AttributeBuilder.build(GIVEN_NAME.name(), user.getName().getGivenName()));
-        attributes.add(AttributeBuilder.build(FORMATTED_NAME.name(), user.getName().getFormatted()));
-
+        addRequested(attributes, ACTIVE, user.getActive());
+        if (user.getMeta() != null) {
+            addRequested(attributes, CREATED, user.getMeta().getCreated());
+            addRequested(attributes, LAST_MODIFIED, user.getMeta().getLastModified());
+            addRequested(attributes, LOCATION_URL, user.getMeta().getLocation());
+        }
+        if (user.getName() != null) {
+            addRequested(attributes, FAMILY_NAME, user.getName().getFamilyName());
+            addRequested(attributes, GIVEN_NAME, user.getName().getGivenName());
+            addRequested(attributes, FORMATTED_NAME, user.getName().getFormatted());
+        }
 
         if (user.getEmails() != null && user.getEmails().size() > 0) {
-            attributes.add(AttributeBuilder.build(EMAIL.name(), user.getEmails().get(0).getValue()));
-            attributes.add(AttributeBuilder.build(EMAIL_TYPE.name(), user.getEmails().get(0).getType()));
+            addRequested(attributes, EMAIL, user.getEmails().get(0).getValue());
+            addRequested(attributes, EMAIL_TYPE, user.getEmails().get(0).getType());
         }
 
         if (user.getPhoneNumbers() != null && user.getPhoneNumbers().size() > 0) {
-            attributes.add(AttributeBuilder.build(PHONE_NUMBER.name(), user.getPhoneNumbers().get(0).getValue()));
-            attributes.add(AttributeBuilder.build(PHONE_NUMBER_TYPE.name(), user.getPhoneNumbers().get(0).getType()));
+            addRequested(attributes, PHONE_NUMBER, user.getPhoneNumbers().get(0).getValue());
+            addRequested(attributes, PHONE_NUMBER_TYPE, user.getPhoneNumbers().get(0).getType());
         }
 
         if (user.getAddresses() != null && user.getAddresses().size() > 0) {
-            attributes.add(AttributeBuilder.build(STREET_ADDRESS.name(), user.getAddresses().get(0).getStreetAddress()));
-            attributes.add(AttributeBuilder.build(LOCALITY.name(), user.getAddresses().get(0).getLocality()));
-            attributes.add(AttributeBuilder.build(REGION.name(), user.getAddresses().get(0).getRegion()));
-            attributes.add(AttributeBuilder.build(POSTAL_CODE.name(), user.getAddresses().get(0).getPostalCode()));
-            attributes.add(AttributeBuilder.build(COUNTRY.name(), user.getAddresses().get(0).getCountry()));
-            attributes.add(AttributeBuilder.build(ADDRESS_TYPE.name(), user.getAddresses().get(0).getType()));
-         }
+            RingCentralUserAddress address = user.getAddresses().get(0);
+            addRequested(attributes, STREET_ADDRESS, address.getStreetAddress());
+            addRequested(attributes, LOCALITY, address.getLocality());
+            addRequested(attributes, REGION, address.getRegion());
+            addRequested(attributes, POSTAL_CODE, address.getPostalCode());
+            addRequested(attributes, COUNTRY, address.getCountry());
+            addRequested(attributes, ADDRESS_TYPE, address.getType());
+        }
 
         return attributes;
     }
 
+    public ConnectorObject buildConnectorObject(RingCentralUser user) {
+        return new ConnectorObjectBuilder()
+                .setObjectClass(getType())
+                .setUid(user.getIdentityIdValue())
+                .setName(user.getIdentityNameValue())
+                .addAttributes(constructAttributes(user))
+                .build();
+    }
+
+    public RingCentralUser buildUser(Set<Attribute> attributes) {
+        return constructModel(attributes, Collections.emptySet(), Collections.emptySet(), true);
+    }
+
+    private static void addRequested(Set<Attribute> attributes, RingCentralUserAttribute attribute, Object value) {
+        if (RingCentralUserProjection.includes(attribute)) {
+            attributes.add(AttributeBuilder.build(attribute.name(), value));
+        }
+    }
+
     @Override
     protected RingCentralUser constructModel(Set<Attribute> attributes,
                                              Set<Attribute> multiValueAdd,
@@ -150,6 +175,117 @@ public class RingCentralUsersAdapter extends BaseAdapter<RingCentralUser, RingCe
             user.getAddresses().add(new RingCentralUserAddress(addressLine, locality, region, postalCode, country, addressType));
         }
 
+        if (!isCreate) {
+            user.setPatchOperations(buildPatchOperations(attributes, multiValueAdd, multiValueRemove));
+        }
         return user;
     }
+
+    /**
+     * Email, phone number and address are replaced whole; an attribute without a value is removed.
+     */
+    static List<UserPatchOperation> buildPatchOperations(Set<Attribute> attributes,
+                                                         Set<Attribute> multiValueAdd,
+                                                         Set<Attribute> multiValueRemove) {
+        List<UserPatchOperation> operations = new ArrayList<>();
+        addReplace(operations, attributes, USER_NAME, false);
+        addReplace(operations, attributes, ACTIVE, false);
+        addReplace(operations, attributes, GIVEN_NAME, true);
+        addReplace(operations, attributes, FAMILY_NAME, true);
+        addReplace(operations, attributes, FORMATTED_NAME, true);
+
+        if (isPresent(attributes, EMAIL)) {
+            String email = AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, EMAIL);
+            String emailType = AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, EMAIL_TYPE);
+            operations.add(StringUtils.isBlank(email) ? patchOperation("remove", "emails", null) :
+                    patchOperation("replace", "emails", Collections.singletonList(
+                            new RingCentralUserEmail(email, emailType == null ? "work" : emailType))));
+        }
+        if (isPresent(attributes, PHONE_NUMBER)) {
+            String phone = AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, PHONE_NUMBER);
+            String phoneType = AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, PHONE_NUMBER_TYPE);
+            operations.add(StringUtils.isBlank(phone) ? patchOperation("remove", "phoneNumbers", null) :
+                    patchOperation("replace", "phoneNumbers", Collections.singletonList(
+                            new RingCentralUserPhone(phone, phoneType))));
+        }
+
+        List<RingCentralUserAttribute> addressParts = Arrays.asList(STREET_ADDRESS, LOCALITY, REGION, POSTAL_CODE, COUNTRY);
+        boolean addressValueSet = false;
+        boolean addressCleared = true;
+        for (RingCentralUserAttribute part : addressParts) {
+            String value = AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, part);
+            addressValueSet |= StringUtils.isNotBlank(value);
+            addressCleared &= isPresent(attributes, part) && StringUtils.isBlank(value);
+        }
+        if (addressValueSet) {
+            operations.add(patchOperation("replace", "addresses", Collections.singletonList(new RingCentralUserAddress(
+                    AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, STREET_ADDRESS),
+                    AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, LOCALITY),
+                    AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, REGION),
+                    AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, POSTAL_CODE),
+                    AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, COUNTRY),
+                    AdapterValueTypeConverter.getSingleAttributeValue(String.class, attributes, ADDRESS_TYPE)))));
+        } else if (addressCleared) {
+            // only when every part is cleared, since a partial address would replace the whole one
+            operations.add(patchOperation("remove", "addresses", null));
+        }
+
+        for (String email : valuesOf(multiValueAdd, EMAIL)) {
+            operations.add(patchOperation("add", "emails",
+                    Collections.singletonList(new RingCentralUserEmail(email, "work"))));
+        }
+        for (String email : valuesOf(multiValueRemove, EMAIL)) {
+            operations.add(patchOperation("remove", "emails[value eq " + quote(email) + "]", null));
+        }
+        for (String phone : valuesOf(multiValueAdd, PHONE_NUMBER)) {
+            operations.add(patchOperation("add", "phoneNumbers",
+                    Collections.singletonList(new RingCentralUserPhone(phone, null))));
+        }
+        for (String phone : valuesOf(multiValueRemove, PHONE_NUMBER)) {
+            operations.add(patchOperation("remove", "phoneNumbers[value eq " + quote(phone) + "]", null));
+        }
+        return operations;
+    }
+
+    private static void addReplace(List<UserPatchOperation> operations, Set<Attribute> attributes,
+                                   RingCentralUserAttribute attribute, boolean removable) {
+        if (!isPresent(attributes, attribute)) {
+            return;
+        }
+        Object value = AttributeUtil.getSingleValue(AttributeUtil.find(attribute.name(), attributes));
+        if (value != null && !(value instanceof String && StringUtils.isBlank((String) value))) {
+            operations.add(patchOperation("replace", attribute.getScimPath(), value));
+        } else if (removable) {
+            operations.add(patchOperation("remove", attribute.getScimPath(), null));
+        }
+    }
+
+    private static UserPatchOperation patchOperation(String op, String path, Object value) {
+        UserPatchOperation operation = new UserPatchOperation();
+        operation.setOp(op);
+        operation.setPath(path);
+        operation.setValue(value);
+        return operation;
+    }
+
+    private static boolean isPresent(Set<Attribute> attributes, RingCentralUserAttribute attribute) {
+        return attributes != null && AttributeUtil.find(attribute.name(), attributes) != null;
+    }
+
+    private static List<String> valuesOf(Set<Attribute> attributes, RingCentralUserAttribute attribute) {
+        Attribute found = attributes == null ? null : AttributeUtil.find(attribute.name(), attributes);
+        List<String> values = new ArrayList<>();
+        if (found != null && found.getValue() != null) {
+            for (Object value : found.getValue()) {
+                if (value != null && StringUtils.isNotBlank(value.toString())) {
+                    values.add(value.toString());
+                }
+            }
+        }
+        return values;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
 }
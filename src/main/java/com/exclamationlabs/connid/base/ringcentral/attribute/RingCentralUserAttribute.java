@@ -14,23 +14,36 @@
 package com.exclamationlabs.connid.base.ringcentral.attribute;
 
 public enum RingCentralUserAttribute {
-    USER_ID,
-    USER_NAME,
-    CREATED,
-    LAST_MODIFIED,
-    LOCATION_URL,
-    FORMATTED_NAME,
-    GIVEN_NAME,
-    FAMILY_NAME,
-    ACTIVE,
-    EMAIL,
-    EMAIL_TYPE,
-    PHONE_NUMBER,
-    PHONE_NUMBER_TYPE,
-    STREET_ADDRESS,
-    LOCALITY,
-    REGION,
-    POSTAL_CODE,
-    COUNTRY,
-    ADDRESS_TYPE
+    USER_ID("id"),
+    USER_NAME("userName"),
+    CREATED("meta.created"),
+    LAST_MODIFIED("meta.lastModified"),
+    LOCATION_URL("meta.location"),
+    FORMATTED_NAME("name.formatted"),
+    GIVEN_NAME("name.givenName"),
+    FAMILY_NAME("name.familyName"),
+    ACTIVE("active"),
+    EMAIL("emails"),
+    EMAIL_TYPE("emails"),
+    PHONE_NUMBER("phoneNumbers"),
+    PHONE_NUMBER_TYPE("phoneNumbers"),
+    STREET_ADDRESS("addresses"),
+    LOCALITY("addresses"),
+    REGION("addresses"),
+    POSTAL_CODE("addresses"),
+    COUNTRY("addresses"),
+    ADDRESS_TYPE("addresses");
+
+    private final String scimPath;
+
+    RingCentralUserAttribute(String scimPath) {
+        this.scimPath = scimPath;
+    }
+
+    /**
+     * @return SCIM attribute path
+     */
+    public String getScimPath() {
+        return scimPath;
+    }
 }
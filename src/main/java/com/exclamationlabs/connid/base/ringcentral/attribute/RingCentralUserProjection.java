@@ -0,0 +1,73 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.attribute;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * User attributesToGet of the query running on the current thread.
+ */
+public final class RingCentralUserProjection {
+
+    private static final ThreadLocal<Set<RingCentralUserAttribute>> requested = new ThreadLocal<>();
+
+    private RingCentralUserProjection() {
+    }
+
+    /**
+     * @param attributesToGet null to read every attribute
+     */
+    public static void set(String[] attributesToGet) {
+        if (attributesToGet == null) {
+            requested.remove();
+            return;
+        }
+        Set<RingCentralUserAttribute> attributes = EnumSet.of(RingCentralUserAttribute.USER_ID,
+                RingCentralUserAttribute.USER_NAME);
+        for (String name : attributesToGet) {
+            for (RingCentralUserAttribute attribute : RingCentralUserAttribute.values()) {
+                if (attribute.name().equalsIgnoreCase(name)) {
+                    attributes.add(attribute);
+                }
+            }
+        }
+        requested.set(attributes);
+    }
+
+    public static void clear() {
+        requested.remove();
+    }
+
+    public static boolean includes(RingCentralUserAttribute attribute) {
+        Set<RingCentralUserAttribute> attributes = requested.get();
+        return attributes == null || attributes.contains(attribute);
+    }
+
+    /**
+     * @return SCIM attributes parameter, or null to read every attribute
+     */
+    public static String scimAttributes() {
+        Set<RingCentralUserAttribute> attributes = requested.get();
+        if (attributes == null) {
+            return null;
+        }
+        Set<String> paths = new TreeSet<>();
+        for (RingCentralUserAttribute attribute : attributes) {
+            paths.add(attribute.getScimPath());
+        }
+        return String.join(",", paths);
+    }
+}
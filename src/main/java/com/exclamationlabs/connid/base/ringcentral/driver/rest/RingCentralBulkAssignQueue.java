@@ -0,0 +1,197 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.model.request.CallQueueBulkAssign;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Merges the membership changes made to a call queue within the window into one bulk-assign.
+ */
+public class RingCentralBulkAssignQueue {
+
+    private static final ConcurrentMap<String, RingCentralBulkAssignQueue> accountQueues = new ConcurrentHashMap<>();
+
+    private final long windowNanos;
+    private final Sender sender;
+    private final ConcurrentMap<String, QueueBuffer> buffers = new ConcurrentHashMap<>();
+
+    RingCentralBulkAssignQueue(long windowMillis, Sender sender) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.sender = sender;
+    }
+
+    public static RingCentralBulkAssignQueue forAccount(String serviceUrl, String username, long windowMillis) {
+        return accountQueues.computeIfAbsent(RingCentralRateLimitRegistry.accountKey(serviceUrl, username) +
+                "|" + windowMillis, key -> new RingCentralBulkAssignQueue(windowMillis, RingCentralBulkAssignQueue::send));
+    }
+
+    private static void send(RingCentralDriver driver, String queueId, CallQueueBulkAssign bulkAssign) {
+        try {
+            driver.executePostRequest(
+                    RingCentralDriver.ACCOUNT_API_PATH + "call-queues/" + queueId +
+                            "/bulk-assign", CallQueueBulkAssign.class, bulkAssign).getResponseObject();
+        } catch (IllegalArgumentException ill) {
+            // Post returns HTTP 204 and no response, which is not supported well by base framework
+            // disregard exception
+        }
+    }
+
+    /**
+     * @param currentMembers members the change was computed from, or null if not known
+     * @return merged change sent for the queue, including the changes of other callers
+     */
+    public CallQueueBulkAssign assign(RingCentralDriver driver, String queueId, Collection<String> currentMembers,
+                                      List<String> added, List<String> removed) {
+        QueueBuffer buffer;
+        Batch batch;
+        boolean leader;
+        while (true) {
+            buffer = buffers.computeIfAbsent(queueId, key -> new QueueBuffer());
+            synchronized (buffer) {
+                if (buffer.retired) {
+                    // emptied and dropped after we looked it up
+                    continue;
+                }
+                leader = buffer.open == null;
+                if (leader) {
+                    buffer.open = new Batch();
+                }
+                batch = buffer.open;
+                batch.merge(currentMembers, added, removed);
+                if (leader) {
+                    awaitTurn(buffer);
+                    buffer.open = null;
+                    buffer.flushing = true;
+                }
+            }
+            break;
+        }
+        if (leader) {
+            try {
+                CallQueueBulkAssign bulkAssign = batch.toBulkAssign();
+                if (!bulkAssign.getAddedExtensionIds().isEmpty() || !bulkAssign.getRemovedExtensionIds().isEmpty()) {
+                    sender.send(driver, queueId, bulkAssign);
+                }
+                batch.sent.complete(bulkAssign);
+            } catch (RuntimeException e) {
+                batch.sent.completeExceptionally(e);
+            } finally {
+                synchronized (buffer) {
+                    buffer.flushing = false;
+                    if (buffer.open == null) {
+                        buffer.retired = true;
+                        buffers.remove(queueId, buffer);
+                    }
+                    buffer.notifyAll();
+                }
+            }
+        }
+        return RingCentralFutures.await(batch.sent);
+    }
+
+    private void awaitTurn(QueueBuffer buffer) {
+        long deadline = System.nanoTime() + windowNanos;
+        boolean interrupted = false;
+        while (true) {
+            long remaining = interrupted ? 0 : deadline - System.nanoTime();
+            if (remaining <= 0 && !buffer.flushing) {
+                break;
+            }
+            try {
+                if (remaining > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(buffer, remaining);
+                } else {
+                    buffer.wait();
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    int getBufferedQueueCount() {
+        return buffers.size();
+    }
+
+    /**
+     * @return callers whose changes wait in the batch not yet being sent for the queue
+     */
+    int getWaitingCallerCount(String queueId) {
+        QueueBuffer buffer = buffers.get(queueId);
+        if (buffer == null) {
+            return 0;
+        }
+        synchronized (buffer) {
+            return buffer.open == null ? 0 : buffer.open.callers;
+        }
+    }
+
+    interface Sender {
+        void send(RingCentralDriver driver, String queueId, CallQueueBulkAssign bulkAssign);
+    }
+
+    private static class QueueBuffer {
+        private Batch open;
+        private boolean flushing;
+        private boolean retired;
+    }
+
+    private static class Batch {
+        // last requested membership of each extension
+        private final Map<String, Boolean> membership = new LinkedHashMap<>();
+        // membership of each extension before the batch, where a caller knew it
+        private final Map<String, Boolean> knownMembership = new HashMap<>();
+        private final CompletableFuture<CallQueueBulkAssign> sent = new CompletableFuture<>();
+        private int callers;
+
+        private void merge(Collection<String> currentMembers, List<String> addedIds, List<String> removedIds) {
+            callers++;
+            for (String id : addedIds) {
+                request(currentMembers, id, true);
+            }
+            for (String id : removedIds) {
+                request(currentMembers, id, false);
+            }
+        }
+
+        private void request(Collection<String> currentMembers, String id, boolean member) {
+            membership.put(id, member);
+            if (currentMembers != null) {
+                knownMembership.putIfAbsent(id, currentMembers.contains(id));
+            }
+        }
+
+        private CallQueueBulkAssign toBulkAssign() {
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            for (Map.Entry<String, Boolean> entry : membership.entrySet()) {
+                if (entry.getValue().equals(knownMembership.get(entry.getKey()))) {
+                    // a later change restored the membership known before the batch
+                    continue;
+                }
+                (entry.getValue() ? added : removed).add(entry.getKey());
+            }
+            CallQueueBulkAssign bulkAssign = new CallQueueBulkAssign();
+            bulkAssign.setAddedExtensionIds(added);
+            bulkAssign.setRemovedExtensionIds(removed);
+            return bulkAssign;
+        }
+    }
+}
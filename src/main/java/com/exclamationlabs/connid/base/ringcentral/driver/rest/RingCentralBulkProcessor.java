@@ -0,0 +1,241 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.model.request.BulkOperation;
+import com.exclamationlabs.connid.base.ringcentral.model.request.BulkRequest;
+import com.exclamationlabs.connid.base.ringcentral.model.response.BulkOperationResponse;
+import com.exclamationlabs.connid.base.ringcentral.model.response.BulkResponse;
+import com.exclamationlabs.connid.base.ringcentral.model.response.fault.ErrorResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Batches the user writes of an account into SCIM bulk requests. The first caller of a
+ * batch waits up to the window for others to join, then sends it with its own driver.
+ */
+public class RingCentralBulkProcessor {
+
+    static final long DEFAULT_WINDOW_MILLIS = 200;
+
+    private static final Log LOG = Log.getLog(RingCentralBulkProcessor.class);
+
+    private static final ConcurrentMap<String, RingCentralBulkProcessor> accountProcessors =
+            new ConcurrentHashMap<>();
+
+    private final int batchSize;
+    private final long windowNanos;
+    private final BiFunction<RingCentralDriver, BulkRequest, BulkResponse> sender;
+    private final AtomicLong nextBulkId = new AtomicLong();
+    private final Gson gson = new Gson();
+    private final Object lock = new Object();
+    private List<PendingOperation> batch = new ArrayList<>();
+
+    RingCentralBulkProcessor(int batchSize, long windowMillis,
+                             BiFunction<RingCentralDriver, BulkRequest, BulkResponse> sender) {
+        this.batchSize = batchSize;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.sender = sender;
+    }
+
+    public static RingCentralBulkProcessor forAccount(String serviceUrl, String username,
+                                                      int batchSize, long windowMillis) {
+        return accountProcessors.computeIfAbsent(RingCentralRateLimitRegistry.accountKey(serviceUrl, username) +
+                        "|" + batchSize + "|" + windowMillis,
+                key -> new RingCentralBulkProcessor(batchSize, windowMillis, RingCentralBulkProcessor::send));
+    }
+
+    private static BulkResponse send(RingCentralDriver driver, BulkRequest request) {
+        return driver.executePostRequest(RingCentralDriver.API_PATH + "Bulk",
+                BulkResponse.class, request).getResponseObject();
+    }
+
+    /**
+     * @param path SCIM path of the resource, e.g. {@code /Users/281950004}
+     * @param data resource or PatchOp document to send, or null
+     * @return result of the operation once its batch has been sent
+     */
+    public BulkOperationResponse execute(RingCentralDriver driver, String method, String path, Object data) {
+        BulkOperation operation = new BulkOperation();
+        operation.setMethod(method);
+        operation.setBulkId("op" + nextBulkId.incrementAndGet());
+        operation.setPath(path);
+        operation.setData(data);
+        PendingOperation pending = new PendingOperation(driver, operation);
+        List<PendingOperation> toSend = null;
+        synchronized (lock) {
+            List<PendingOperation> current = batch;
+            current.add(pending);
+            if (current.size() >= batchSize) {
+                toSend = takeBatch();
+            } else if (current.size() == 1) {
+                // first caller waits out the window unless another caller fills the batch
+                long deadline = System.nanoTime() + windowNanos;
+                long remaining;
+                boolean interrupted = false;
+                while (batch == current && (remaining = deadline - System.nanoTime()) > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        break;
+                    }
+                }
+                if (batch == current) {
+                    toSend = takeBatch();
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        if (toSend != null) {
+            flush(toSend);
+        }
+        return RingCentralFutures.await(pending.result);
+    }
+
+    /**
+     * @return operations waiting in the batch not yet sent
+     */
+    int getWaitingOperationCount() {
+        synchronized (lock) {
+            return batch.size();
+        }
+    }
+
+    private List<PendingOperation> takeBatch() {
+        List<PendingOperation> taken = batch;
+        batch = new ArrayList<>();
+        lock.notifyAll();
+        return taken;
+    }
+
+    private void flush(List<PendingOperation> operations) {
+        long backoffMillis = 0;
+        for (int attempt = 0; ; attempt++) {
+            List<PendingOperation> throttled = sendBatch(operations, attempt < RingCentralDriver.THROTTLE_RETRY_LIMIT);
+            if (throttled.isEmpty()) {
+                return;
+            }
+            // throttled operations go again in a bulk request of their own, as a throttled single request would
+            backoffMillis = RingCentralDriver.nextBackoffMillis(backoffMillis);
+            LOG.info("RingCentral throttled {0} bulk operations, attempt {1}", throttled.size(), attempt + 1);
+            try {
+                backOff(throttled.get(0).driver, (RingCentralThrottledException) throttled.get(0).fault,
+                        backoffMillis);
+            } catch (RuntimeException e) {
+                for (PendingOperation pending : throttled) {
+                    pending.result.completeExceptionally(e);
+                }
+                return;
+            }
+            operations = throttled;
+        }
+    }
+
+    /**
+     * @return operations throttled in a way their method may retry, left incomplete
+     */
+    private List<PendingOperation> sendBatch(List<PendingOperation> operations, boolean mayRetry) {
+        List<BulkOperation> bulkOperations = new ArrayList<>();
+        for (PendingOperation pending : operations) {
+            bulkOperations.add(pending.operation);
+        }
+        BulkRequest request = new BulkRequest();
+        request.setOperations(bulkOperations);
+        BulkResponse response;
+        try {
+            response = sender.apply(operations.get(0).driver, request);
+        } catch (RuntimeException e) {
+            for (PendingOperation pending : operations) {
+                pending.result.completeExceptionally(e);
+            }
+            return Collections.emptyList();
+        }
+
+        Map<String, BulkOperationResponse> results = new HashMap<>();
+        if (response != null && response.getOperations() != null) {
+            for (BulkOperationResponse result : response.getOperations()) {
+                if (result.getBulkId() != null) {
+                    results.put(result.getBulkId(), result);
+                }
+            }
+        }
+        List<PendingOperation> throttled = new ArrayList<>();
+        for (PendingOperation pending : operations) {
+            BulkOperationResponse result = results.get(pending.operation.getBulkId());
+            if (result == null) {
+                pending.result.completeExceptionally(new ConnectorException(
+                        "RingCentral bulk response has no result for " + pending.operation.getMethod() +
+                                " " + pending.operation.getPath()));
+                continue;
+            }
+            RuntimeException fault = result.getStatusCode() >= 400 ? faultOf(pending.operation, result) : null;
+            if (fault instanceof RingCentralThrottledException && mayRetry &&
+                    RingCentralDriver.isRetryable(pending.operation.getMethod(), result.getStatusCode())) {
+                pending.fault = fault;
+                throttled.add(pending);
+            } else if (fault != null) {
+                pending.result.completeExceptionally(fault);
+            } else {
+                pending.result.complete(result);
+            }
+        }
+        return throttled;
+    }
+
+    void backOff(RingCentralDriver driver, RingCentralThrottledException throttled, long backoffMillis) {
+        driver.backOff(RingCentralRateLimitRegistry.endpointKey("POST",
+                URI.create(driver.getBaseServiceUrl() + RingCentralDriver.API_PATH + "Bulk")), throttled, backoffMillis);
+    }
+
+    private RuntimeException faultOf(BulkOperation operation, BulkOperationResponse result) {
+        ErrorResponse fault = null;
+        if (result.getResponse() != null && result.getResponse().isJsonObject()) {
+            try {
+                fault = gson.fromJson(result.getResponse(), ErrorResponse.class);
+            } catch (JsonParseException ignored) {
+                // reported by status below
+            }
+        }
+        try {
+            RingCentralFaultProcessor.getInstance().processBulkFault(operation.getMethod(), result.getStatusCode(), fault);
+        } catch (RuntimeException e) {
+            return e;
+        }
+        // delete of a missing resource
+        return null;
+    }
+
+    private static class PendingOperation {
+        private final RingCentralDriver driver;
+        private final BulkOperation operation;
+        private final CompletableFuture<BulkOperationResponse> result = new CompletableFuture<>();
+        private RuntimeException fault;
+
+        private PendingOperation(RingCentralDriver driver, BulkOperation operation) {
+            this.driver = driver;
+            this.operation = operation;
+        }
+    }
+}
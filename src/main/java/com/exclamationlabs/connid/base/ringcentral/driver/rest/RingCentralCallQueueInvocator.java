@@ -17,18 +17,30 @@ import com.exclamationlabs.connid.base.connector.driver.DriverInvocator;
 import com.exclamationlabs.connid.base.connector.results.ResultsFilter;
 import com.exclamationlabs.connid.base.connector.results.ResultsPaginator;
 import com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralCallQueueAttribute;
-import com.exclamationlabs.connid.base.ringcentral.configuration.RingCentralConfiguration;
 import com.exclamationlabs.connid.base.ringcentral.model.RingCentralCallQueue;
 import com.exclamationlabs.connid.base.ringcentral.model.request.CallQueueBulkAssign;
 import com.exclamationlabs.connid.base.ringcentral.model.response.ListCallQueuesResponse;
+import com.exclamationlabs.connid.base.ringcentral.model.response.NavigationInformation;
+import com.exclamationlabs.connid.base.ringcentral.model.response.PagingInformation;
 import org.apache.commons.lang3.StringUtils;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
 
 import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 public class RingCentralCallQueueInvocator implements DriverInvocator<RingCentralDriver, RingCentralCallQueue> {
 
+    static final int PER_PAGE = 1000;
+    static final long MEMBERSHIP_CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private volatile PreferredQueueIds preferredQueueIds;
+    private final RingCentralMembershipCache membershipCache = new RingCentralMembershipCache(MEMBERSHIP_CACHE_TTL_MILLIS);
+
     @Override
     public String create(RingCentralDriver driver, RingCentralCallQueue model) throws ConnectorException {
         throw new ConnectorException("Create of call queue not supported by API");
@@ -37,7 +49,7 @@ public class RingCentralCallQueueInvocator implements DriverInvocator<RingCentra
     @Override
     public void update(RingCentralDriver driver, String queueId, RingCentralCallQueue queue) throws ConnectorException {
         // Update Call Queue members only (not the call queue itself)
-        List<String> currentMembers = getCurrentCallQueueMembers(driver, queueId);
+        List<String> currentMembers = getCurrentCallQueueMembers(driver, queueId, RingCentralRequestPriority.BACKGROUND);
         List<String> updatedMembers = queue.getUserMembers();
 
         List<String> membersToRemove = new ArrayList<>(currentMembers);
@@ -46,21 +58,20 @@ public class RingCentralCallQueueInvocator implements DriverInvocator<RingCentra
         List<String> membersToAdd = new ArrayList<>(updatedMembers);
         membersToAdd.removeAll(currentMembers);
 
-        CallQueueBulkAssign bulkAssign = new CallQueueBulkAssign();
-        bulkAssign.setAddedExtensionIds(membersToAdd);
-        bulkAssign.setRemovedExtensionIds(membersToRemove);
+        if (membersToAdd.isEmpty() && membersToRemove.isEmpty()) {
+            return;
+        }
 
+        CallQueueBulkAssign sent;
         try {
-            driver.rateLimitCheck("heavy");
-
-            driver.executePostRequest(
-                    RingCentralDriver.ACCOUNT_API_PATH + "call-queues/" + queueId +
-                            "/bulk-assign", CallQueueBulkAssign.class, bulkAssign).getResponseObject();
-        } catch (IllegalArgumentException ill) {
-            // Post returns HTTP 204 and no response, which is not supported well by base framework
-            // disregard exception
+            sent = driver.getBulkAssignQueue().assign(driver, queueId, currentMembers, membersToAdd, membersToRemove);
+        } catch (RuntimeException e) {
+            // the assignment may have been partly applied
+            membershipCache.invalidate(queueId);
+            throw e;
         }
-
+        // includes the changes of other callers merged into the same bulk-assign
+        membershipCache.assigned(queueId, sent.getAddedExtensionIds(), sent.getRemovedExtensionIds());
     }
 
     @Override
@@ -71,59 +82,253 @@ public class RingCentralCallQueueInvocator implements DriverInvocator<RingCentra
     @Override
     public Set<RingCentralCallQueue> getAll(RingCentralDriver driver, ResultsFilter filter,
                                              ResultsPaginator paginator, Integer max) throws ConnectorException {
-        driver.rateLimitCheck("medium");
-
         if (StringUtils.equalsIgnoreCase(filter.getAttribute(), RingCentralCallQueueAttribute.USER_MEMBERS.name())) {
-            RingCentralConfiguration ringCentralConfiguration = driver.getConfiguration();
-
-            String[] ids = new String[0];
-            if (StringUtils.isNotBlank(ringCentralConfiguration.getPreferredCallQueueIds())) {
-                ids = StringUtils.split(ringCentralConfiguration.getPreferredCallQueueIds(), ',');
-            }
-
-            ListCallQueuesResponse response = driver.executeGetRequest(RingCentralDriver.ACCOUNT_API_PATH +
-                            "call-queues?perPage=1000&memberExtensionId="+filter.getValue(), ListCallQueuesResponse.class,
-                    Collections.emptyMap()).getResponseObject();
-
-            List<String> idList = Arrays.asList(ids);
-            return response.getRecords().stream()
-                    .filter(queue -> idList.contains(queue.getIdentityIdValue())).collect(Collectors.toSet());
+            return buildMembershipIndex(driver, getPreferredQueueIds(driver)).queuesOf(filter.getValue());
         } else {
-            ListCallQueuesResponse response = driver.executeGetRequest(RingCentralDriver.ACCOUNT_API_PATH +
-                            "call-queues?perPage=1000", ListCallQueuesResponse.class,
-                    Collections.emptyMap()).getResponseObject();
-            return new HashSet<>(response.getRecords());
+            Integer hydration = driver.getConfiguration().getCallQueueMemberHydration();
+            if (hydration != null && hydration > 0) {
+                return new RingCentralPagedSet<>(() -> new MemberHydratingIterator(driver,
+                        listQueues(driver, max), hydration));
+            }
+            return new RingCentralPagedSet<>(() -> listQueues(driver, max));
         }
     }
 
     @Override
     public RingCentralCallQueue getOne(RingCentralDriver driver, String queueId, Map<String, Object> map) throws ConnectorException {
-        driver.rateLimitCheck("light");
+        driver.setNextRequestPriority(RingCentralRequestPriority.INTERACTIVE);
 
         RingCentralCallQueue result = driver.executeGetRequest(
                 RingCentralDriver.ACCOUNT_API_PATH + "call-queues/" + queueId,
                 RingCentralCallQueue.class, Collections.emptyMap()).getResponseObject();
 
         // get list of current call queue members
-        List<String> members = getCurrentCallQueueMembers(driver, queueId);
+        List<String> members = getCurrentCallQueueMembers(driver, queueId, RingCentralRequestPriority.INTERACTIVE);
         result.setUserMembers(members);
 
         return result;
     }
 
-    private List<String> getCurrentCallQueueMembers(RingCentralDriver driver, String queueId) {
-        List<String> members = new ArrayList<>();
+    /**
+     * Index answering a USER_MEMBERS lookup, built for each search so that changes made in RingCentral are seen.
+     */
+    private MembershipIndex buildMembershipIndex(RingCentralDriver driver, Set<String> preferredQueueIds) {
+        MembershipIndex index = new MembershipIndex();
+        Iterator<RingCentralCallQueue> queues = isPreferredOnly(driver) ?
+                fetchPreferredQueues(driver, preferredQueueIds, null) :
+                new CallQueuePageIterator(driver, "call-queues", "", RingCentralRequestPriority.BACKGROUND,
+                        queue -> preferredQueueIds.contains(queue.getIdentityIdValue()), null);
+        while (queues.hasNext()) {
+            RingCentralCallQueue queue = queues.next();
+            for (String member : getCurrentCallQueueMembers(driver, queue.getId(),
+                    RingCentralRequestPriority.BACKGROUND)) {
+                index.add(member, queue);
+            }
+        }
+        return index;
+    }
 
-        driver.rateLimitCheck("light");
+    /**
+     * @return only the preferred call queues when preferredCallQueuesOnly is set, otherwise all
+     */
+    private Iterator<RingCentralCallQueue> listQueues(RingCentralDriver driver, Integer max) {
+        if (isPreferredOnly(driver)) {
+            return fetchPreferredQueues(driver, getPreferredQueueIds(driver), max);
+        }
+        return new CallQueuePageIterator(driver, "call-queues", "", RingCentralRequestPriority.BACKGROUND,
+                queue -> true, max);
+    }
+
+    private boolean isPreferredOnly(RingCentralDriver driver) {
+        return Boolean.TRUE.equals(driver.getConfiguration().getPreferredCallQueuesOnly()) &&
+                !getPreferredQueueIds(driver).isEmpty();
+    }
 
-        ListCallQueuesResponse membersResult = driver.executeGetRequest(
-                RingCentralDriver.ACCOUNT_API_PATH + "call-queues/" + queueId + "/members",
-                ListCallQueuesResponse.class, Collections.emptyMap()).getResponseObject();
-        for (RingCentralCallQueue current : membersResult.getRecords()) {
-            members.add(current.getId());
+    private static Iterator<RingCentralCallQueue> fetchPreferredQueues(RingCentralDriver driver, Set<String> queueIds,
+                                                                      Integer max) {
+        // lazily, one request per queue as the iterator advances
+        return queueIds.stream()
+                .map(queueId -> {
+                    driver.setNextRequestPriority(RingCentralRequestPriority.BACKGROUND);
+                    return driver.executeGetRequest(RingCentralDriver.ACCOUNT_API_PATH + "call-queues/" + queueId,
+                            RingCentralCallQueue.class, Collections.emptyMap()).getResponseObject();
+                })
+                .filter(Objects::nonNull)
+                .limit(max != null && max > 0 ? max : Long.MAX_VALUE)
+                .iterator();
+    }
+
+    Set<String> getPreferredQueueIds(RingCentralDriver driver) {
+        String configured = StringUtils.defaultString(driver.getConfiguration().getPreferredCallQueueIds());
+        PreferredQueueIds current = preferredQueueIds;
+        if (current == null || !current.configured.equals(configured)) {
+            current = new PreferredQueueIds(configured);
+            preferredQueueIds = current;
         }
+        return current.ids;
+    }
 
+    private List<String> getCurrentCallQueueMembers(RingCentralDriver driver, String queueId,
+                                                    RingCentralRequestPriority priority) {
+        List<String> members = membershipCache.get(queueId);
+        if (members != null) {
+            return members;
+        }
+        members = new ArrayList<>();
+        Iterator<RingCentralCallQueue> memberRecords = new CallQueuePageIterator(driver,
+                "call-queues/" + queueId + "/members", "", priority, member -> true, null);
+        while (memberRecords.hasNext()) {
+            members.add(memberRecords.next().getId());
+        }
+        membershipCache.put(queueId, members);
         return members;
     }
 
+    /**
+     * Walks a RingCentral REST listing until its navigation has no next page.
+     */
+    private static class CallQueuePageIterator extends RingCentralPageIterator<RingCentralCallQueue> {
+        private final RingCentralDriver driver;
+        private final String path;
+        private final String query;
+        private final RingCentralRequestPriority priority;
+        private final Predicate<RingCentralCallQueue> include;
+        private int page = 1;
+        private boolean done;
+
+        private CallQueuePageIterator(RingCentralDriver driver, String path, String query,
+                                      RingCentralRequestPriority priority,
+                                      Predicate<RingCentralCallQueue> include, Integer max) {
+            super(max);
+            this.driver = driver;
+            this.path = path;
+            this.query = query;
+            this.priority = priority;
+            this.include = include;
+        }
+
+        @Override
+        protected List<RingCentralCallQueue> nextPage() {
+            if (done) {
+                return null;
+            }
+            driver.setNextRequestPriority(priority);
+            ListCallQueuesResponse response = driver.executeGetRequest(RingCentralDriver.ACCOUNT_API_PATH + path +
+                            "?page=" + page + "&perPage=" + PER_PAGE + query, ListCallQueuesResponse.class,
+                    Collections.emptyMap()).getResponseObject();
+            List<RingCentralCallQueue> records = response == null || response.getRecords() == null ?
+                    Collections.emptyList() : response.getRecords();
+            done = records.isEmpty() || !hasNextPage(response);
+            page++;
+            return records.stream().filter(include).collect(Collectors.toList());
+        }
+
+        private boolean hasNextPage(ListCallQueuesResponse response) {
+            PagingInformation paging = response.getPaging();
+            if (paging != null && paging.getPage() != null && paging.getTotalPages() != null) {
+                return paging.getPage() < paging.getTotalPages();
+            }
+            NavigationInformation navigation = response.getNavigation();
+            return navigation != null && navigation.getNextPage() != null &&
+                    StringUtils.isNotBlank(navigation.getNextPage().getUri());
+        }
+    }
+
+    /**
+     * Reads the members of up to {@code parallelism} listed queues at a time, in completion order.
+     */
+    private class MemberHydratingIterator implements Iterator<RingCentralCallQueue> {
+        private final RingCentralDriver driver;
+        private final Iterator<RingCentralCallQueue> queues;
+        private final int parallelism;
+        private final CompletionService<RingCentralCallQueue> completed;
+        private final Set<Future<RingCentralCallQueue>> inFlight = new HashSet<>();
+        private final Runnable cancellation = this::cancel;
+
+        private MemberHydratingIterator(RingCentralDriver driver, Iterator<RingCentralCallQueue> queues,
+                                        int parallelism) {
+            this.driver = driver;
+            this.queues = queues;
+            this.parallelism = parallelism;
+            this.completed = new ExecutorCompletionService<>(driver.getWorkerExecutor());
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (inFlight.size() < parallelism && queues.hasNext()) {
+                RingCentralCallQueue queue = queues.next();
+                if (inFlight.isEmpty()) {
+                    driver.openListing(cancellation);
+                }
+                inFlight.add(completed.submit(() -> {
+                    queue.setUserMembers(getCurrentCallQueueMembers(driver, queue.getId(),
+                            RingCentralRequestPriority.BACKGROUND));
+                    return queue;
+                }));
+            }
+            return !inFlight.isEmpty();
+        }
+
+        @Override
+        public RingCentralCallQueue next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Future<RingCentralCallQueue> done;
+            try {
+                done = completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new ConnectorException(e);
+            }
+            inFlight.remove(done);
+            if (inFlight.isEmpty()) {
+                driver.closeListing(cancellation);
+            }
+            try {
+                return RingCentralFutures.await(done);
+            } catch (RuntimeException e) {
+                cancel();
+                throw e;
+            }
+        }
+
+        private void cancel() {
+            for (Future<RingCentralCallQueue> future : inFlight) {
+                future.cancel(true);
+            }
+            inFlight.clear();
+            driver.closeListing(cancellation);
+        }
+    }
+
+    /**
+     * Extension id to the preferred call queues it is a member of.
+     */
+    private static class MembershipIndex {
+        private final Map<String, Set<RingCentralCallQueue>> queuesByMember = new HashMap<>();
+
+        private void add(String member, RingCentralCallQueue queue) {
+            queuesByMember.computeIfAbsent(member, key -> new HashSet<>()).add(queue);
+        }
+
+        private Set<RingCentralCallQueue> queuesOf(String member) {
+            return new HashSet<>(queuesByMember.getOrDefault(member, Collections.emptySet()));
+        }
+    }
+
+    private static class PreferredQueueIds {
+        private final String configured;
+        private final Set<String> ids = new LinkedHashSet<>();
+
+        private PreferredQueueIds(String configured) {
+            this.configured = configured;
+            for (String id : StringUtils.split(configured, ',')) {
+                if (StringUtils.isNotBlank(id)) {
+                    ids.add(id.trim());
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,112 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AIMD limit on the requests in flight for one RingCentral API group, driven by X-Rate-Limit-Remaining.
+ */
+public class RingCentralConcurrencyLimit {
+
+    static final int INITIAL_LIMIT = 4;
+    static final int MAX_LIMIT = 32;
+    static final double HEALTHY_RATIO = 0.5;
+    static final double DRAINING_RATIO = 0.2;
+    static final double DECREASE_FACTOR = 0.5;
+    private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final AdjustableSemaphore permits = new AdjustableSemaphore(INITIAL_LIMIT);
+    private double limit = INITIAL_LIMIT;
+    private int appliedLimit = INITIAL_LIMIT;
+    private long lastDecrease = System.nanoTime() - DECREASE_COOLDOWN_NANOS;
+
+    protected void acquire() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorException(e);
+        }
+    }
+
+    protected void release() {
+        permits.release();
+    }
+
+    protected void onResponse(Integer rateLimit, Integer remaining) {
+        if (rateLimit == null || remaining == null || rateLimit <= 0) {
+            return;
+        }
+        double ratio = (double) remaining / rateLimit;
+        if (ratio >= HEALTHY_RATIO) {
+            adjust(false);
+        } else if (ratio < DRAINING_RATIO) {
+            adjust(true);
+        }
+    }
+
+    protected void onThrottled() {
+        adjust(true);
+    }
+
+    int getAvailableSlots() {
+        return permits.availablePermits();
+    }
+
+    int getLimit() {
+        synchronized (permits) {
+            return appliedLimit;
+        }
+    }
+
+    private void adjust(boolean decrease) {
+        synchronized (permits) {
+            if (decrease) {
+                long now = System.nanoTime();
+                // responses to requests sent before the last cut still report the old drain rate
+                if (now - lastDecrease < DECREASE_COOLDOWN_NANOS) {
+                    return;
+                }
+                lastDecrease = now;
+                limit = Math.max(1, limit * DECREASE_FACTOR);
+            } else {
+                limit = Math.min(MAX_LIMIT, limit + 1 / limit);
+            }
+            int target = (int) limit;
+            if (target > appliedLimit) {
+                permits.release(target - appliedLimit);
+            } else if (target < appliedLimit) {
+                permits.reducePermits(appliedLimit - target);
+            }
+            appliedLimit = target;
+        }
+    }
+
+    private static final class AdjustableSemaphore extends Semaphore {
+        private static final long serialVersionUID = 1L;
+
+        private AdjustableSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+/**
+ * Outcome of a conditional GET.
+ */
+public class RingCentralConditionalResponse<T> {
+
+    private final boolean notModified;
+    private final T responseObject;
+    private final String entityTag;
+
+    public RingCentralConditionalResponse(boolean notModified, T responseObject, String entityTag) {
+        this.notModified = notModified;
+        this.responseObject = responseObject;
+        this.entityTag = entityTag;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    public T getResponseObject() {
+        return responseObject;
+    }
+
+    public String getEntityTag() {
+        return entityTag;
+    }
+}
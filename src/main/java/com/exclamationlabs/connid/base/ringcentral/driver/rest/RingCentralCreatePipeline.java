@@ -0,0 +1,102 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates users in two overlapping phases, extension then SCIM user, each on its own threads.
+ */
+public class RingCentralCreatePipeline implements AutoCloseable {
+
+    static final long PHASE_KEEP_ALIVE_SECONDS = 60;
+
+    private final RingCentralDriver driver;
+    private final RingCentralUserInvocator invocator;
+    private final ExecutorService extensionPhase;
+    private final ExecutorService scimPhase;
+    private final Semaphore inProgress;
+
+    /**
+     * @param width number of creates in each phase at the same time
+     */
+    public RingCentralCreatePipeline(RingCentralDriver driver, int width) {
+        this(driver, driver.getUserInvocator(), width);
+    }
+
+    RingCentralCreatePipeline(RingCentralDriver driver, RingCentralUserInvocator invocator, int width) {
+        this.driver = driver;
+        this.invocator = invocator;
+        extensionPhase = phase(width, "ringcentral-create-extension-");
+        scimPhase = phase(width, "ringcentral-create-user-");
+        // enough to keep both phases busy without adding extensions far ahead of their users
+        inProgress = new Semaphore(width * 2);
+    }
+
+    /**
+     * Blocks while twice the width of creates are in progress.
+     * @return id of the new user
+     */
+    public CompletableFuture<String> submit(RingCentralUser user) {
+        try {
+            inProgress.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorException(e);
+        }
+        CompletableFuture<String> created;
+        try {
+            created = CompletableFuture
+                    .supplyAsync(() -> invocator.createExtension(driver, user), extensionPhase)
+                    .thenApplyAsync(extensionId -> invocator.createScimUser(driver, user, extensionId), scimPhase);
+        } catch (RuntimeException e) {
+            inProgress.release();
+            throw e;
+        }
+        created.whenComplete((userId, failure) -> inProgress.release());
+        return created;
+    }
+
+    @Override
+    public void close() {
+        try {
+            // the extension phase hands each create on to the SCIM phase, so it stops first
+            extensionPhase.shutdown();
+            extensionPhase.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            scimPhase.shutdown();
+            scimPhase.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            extensionPhase.shutdownNow();
+            scimPhase.shutdownNow();
+            throw new ConnectorException(e);
+        }
+    }
+
+    private static ExecutorService phase(int width, String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(width, width,
+                PHASE_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
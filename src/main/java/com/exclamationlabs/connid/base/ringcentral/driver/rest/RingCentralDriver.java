@@ -13,18 +13,42 @@
 
 package com.exclamationlabs.connid.base.ringcentral.driver.rest;
 
+import com.exclamationlabs.connid.base.connector.authenticator.Authenticator;
+import com.exclamationlabs.connid.base.connector.driver.exception.DriverRenewableTokenExpiredException;
 import com.exclamationlabs.connid.base.connector.driver.rest.BaseRestDriver;
 import com.exclamationlabs.connid.base.connector.driver.rest.RestFaultProcessor;
 import com.exclamationlabs.connid.base.connector.driver.rest.RestResponseData;
 import com.exclamationlabs.connid.base.ringcentral.model.RingCentralCallQueue;
 import com.exclamationlabs.connid.base.ringcentral.configuration.RingCentralConfiguration;
 import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class RingCentralDriver extends BaseRestDriver<RingCentralConfiguration> {
 
@@ -32,12 +56,25 @@ public class RingCentralDriver extends BaseRestDriver<RingCentralConfiguration>
     public static final String ACCOUNT_API_PATH = "restapi/v1.0/account/~/";
     public static final String EXTENSION_API_PATH = ACCOUNT_API_PATH + "extension";
 
-    public static Map<String, RingCentralRateLimit> rateLimitMap = new HashMap<>();
+    private static final Log LOG = Log.getLog(RingCentralDriver.class);
+
+    static final int THROTTLE_RETRY_LIMIT = 5;
+    static final long THROTTLE_BACKOFF_BASE_MILLIS = 1000;
+    static final long THROTTLE_BACKOFF_CAP_MILLIS = 60000;
+    static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+
+    private volatile RingCentralRateLimitRegistry rateLimitRegistry;
+    private final ThreadLocal<RingCentralRequestPriority> nextRequestPriority = new ThreadLocal<>();
+    private final ThreadLocal<RingCentralRequestPriority> activeRequestPriority = new ThreadLocal<>();
+    private ExecutorService workerExecutor;
+    private final ThreadLocal<Set<Runnable>> openListings = ThreadLocal.withInitial(LinkedHashSet::new);
+    private volatile RingCentralUserCache userCache;
+    private final RingCentralUserInvocator userInvocator = new RingCentralUserInvocator();
 
 
     public RingCentralDriver() {
         super();
-        addInvocator(RingCentralUser.class, new RingCentralUserInvocator());
+        addInvocator(RingCentralUser.class, userInvocator);
         addInvocator(RingCentralCallQueue.class, new RingCentralCallQueueInvocator());
     }
 
@@ -70,51 +107,354 @@ public class RingCentralDriver extends BaseRestDriver<RingCentralConfiguration>
 
     @Override
     public void close() {
+        synchronized (this) {
+            if (workerExecutor != null) {
+                workerExecutor.shutdownNow();
+                workerExecutor = null;
+            }
+        }
+        rateLimitRegistry = null;
+        userCache = null;
         configuration = null;
         authenticator = null;
     }
 
     @Override
     public <T> RestResponseData<T> executeRequest(HttpRequestBase request, Class<T> returnType, boolean isRetry, int retryCount) {
-        String remaining = null;
+        return withRequestPriority(priority -> executeRateLimited(request, isRetry, priority,
+                () -> super.executeRequest(request, returnType, isRetry, retryCount),
+                RestResponseData::getResponseHeaders));
+    }
+
+    /**
+     * @return unread response body, which the caller must close; null if there is none
+     */
+    public InputStream executeStreamingGetRequest(String uri) {
+        HttpResponse response = executeUnparsedRequest(new HttpGet(getBaseServiceUrl() + uri));
+        if (response == null || response.getEntity() == null) {
+            return null;
+        }
+        try {
+            return response.getEntity().getContent();
+        } catch (IOException e) {
+            throw new ConnectorException("Unable to read response from RingCentral for " + uri, e);
+        }
+    }
+
+    /**
+     * @param entityTag sent as If-None-Match, or null to read unconditionally
+     * @return response, with a null body if not modified or not found
+     */
+    public <T> RingCentralConditionalResponse<T> executeConditionalGetRequest(String uri, Class<T> returnType,
+                                                                             String entityTag) {
+        HttpGet request = new HttpGet(getBaseServiceUrl() + uri);
+        if (entityTag != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, entityTag);
+        }
+        HttpResponse response = executeUnparsedRequest(request);
+        if (response == null) {
+            return new RingCentralConditionalResponse<>(false, null, null);
+        }
+        Header etagHeader = response.getFirstHeader(HttpHeaders.ETAG);
+        String etag = etagHeader == null ? null : etagHeader.getValue();
+        if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED || response.getEntity() == null) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            return new RingCentralConditionalResponse<>(
+                    response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED, null, etag);
+        }
+        try (Reader body = new InputStreamReader(response.getEntity().getContent(), StandardCharsets.UTF_8)) {
+            return new RingCentralConditionalResponse<>(false, new GsonBuilder().create().fromJson(body, returnType), etag);
+        } catch (IOException | JsonParseException e) {
+            throw new ConnectorException("Unable to read response from RingCentral for " + uri, e);
+        }
+    }
+
+    /**
+     * Same priority, rate limit, token renewal and fault handling as executeRequest, but the body is left unread.
+     * @return response, or null if not found
+     */
+    private HttpResponse executeUnparsedRequest(HttpRequestBase request) {
+        request.setHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.getMimeType());
+        return withRequestPriority(priority -> {
+            Supplier<HttpResponse> attempt = () -> executeRateLimited(request, false, priority,
+                    () -> sendUnparsed(request), response -> response == null ? null : response.getAllHeaders());
+            try {
+                return attempt.get();
+            } catch (DriverRenewableTokenExpiredException expired) {
+                renewToken();
+                return attempt.get();
+            }
+        });
+    }
+
+    private HttpResponse sendUnparsed(HttpRequestBase request) {
+        request.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + configuration.getCurrentToken());
+        HttpResponse response;
+        try {
+            response = createClient().execute(request);
+        } catch (IOException e) {
+            throw new ConnectorException("Unable to execute RingCentral request " + request.getURI(), e);
+        }
+        if (response.getStatusLine().getStatusCode() >= HttpStatus.SC_BAD_REQUEST) {
+            // throws for everything except data not found, which leaves an empty response
+            getFaultProcessor().process(response, new GsonBuilder());
+            return null;
+        }
+        return response;
+    }
+
+    /**
+     * Run a request, and the retries that re-enter the driver for it, in one priority lane.
+     */
+    <R> R withRequestPriority(Function<RingCentralRequestPriority, R> logicalRequest) {
+        RingCentralRequestPriority active = activeRequestPriority.get();
+        if (active != null) {
+            return logicalRequest.apply(active);
+        }
+        RingCentralRequestPriority priority = nextRequestPriority.get() == null ?
+                RingCentralRequestPriority.BACKGROUND : nextRequestPriority.get();
+        nextRequestPriority.remove();
+        activeRequestPriority.set(priority);
+        try {
+            return logicalRequest.apply(priority);
+        } finally {
+            activeRequestPriority.remove();
+        }
+    }
+
+    private void renewToken() {
+        @SuppressWarnings("unchecked")
+        Authenticator<RingCentralConfiguration> tokenAuthenticator = (Authenticator<RingCentralConfiguration>) authenticator;
+        configuration.setCurrentToken(tokenAuthenticator.authenticate(configuration));
+    }
+
+    private <R> R executeRateLimited(HttpRequestBase request, boolean isRetry, RingCentralRequestPriority priority,
+                                     Supplier<R> call, Function<R, Header[]> responseHeaders) {
         String group = null;
-        String expiration = null;
+        Integer limit = null;
+        Integer remaining = null;
+        Long window = null;
 
-        RestResponseData<T> response = super.executeRequest(request, returnType, isRetry, retryCount);
+        RingCentralRateLimitRegistry registry = getRateLimitRegistry();
+        String endpoint = RingCentralRateLimitRegistry.endpointKey(request.getMethod(), request.getURI());
 
-        for(Header header : response.getResponseHeaders()){
-            if(remaining != null && expiration != null && group != null){
+        R response;
+        long backoffMillis = 0;
+        for (int attempt = 0; ; attempt++) {
+            // Retries issued by the base driver re-enter here while the original request still holds its slot
+            RingCentralRateLimit rateLimit = isRetry ? null : registry.get(registry.groupFor(endpoint));
+            if (rateLimit != null) {
+                rateLimit.acquire(priority);
+            }
+            RingCentralThrottledException throttled;
+            try {
+                response = call.get();
                 break;
+            } catch (RingCentralThrottledException e) {
+                if (attempt >= THROTTLE_RETRY_LIMIT || !isRetryable(request.getMethod(), e.getStatusCode())) {
+                    throw e;
+                }
+                throttled = e;
+            } finally {
+                if (rateLimit != null) {
+                    rateLimit.release(priority);
+                }
             }
+            // the in-flight slot is free while this request waits to retry
+            backoffMillis = nextBackoffMillis(backoffMillis);
+            LOG.info("RingCentral request {0} throttled, attempt {1}", request.getURI(), attempt + 1);
+            backOff(endpoint, throttled, backoffMillis);
+        }
+
+        Header[] headers = responseHeaders.apply(response);
+        for (Header header : headers == null ? new Header[0] : headers) {
             switch (header.getName()) {
                 case "X-Rate-Limit-Group":
-                    group = header.getValue();
+                    group = StringUtils.lowerCase(header.getValue());
+                    break;
+                case "X-Rate-Limit-Limit":
+                    limit = parseIntHeader(header);
                     break;
                 case "X-Rate-Limit-Remaining":
-                    remaining = header.getValue();
+                    remaining = parseIntHeader(header);
                     break;
                 case "X-Rate-Limit-Window":
-                    expiration = header.getValue();
+                    window = parseLongHeader(header);
                     break;
             }
         }
-        if(rateLimitMap.containsKey(group)){
-            RingCentralRateLimit rateLimit = rateLimitMap.get(group);
-            rateLimit.setRemaining(remaining);
-            if(expiration == null){
-                expiration = "60";
-            }
-            rateLimit.enqueue(Long.parseLong(expiration));
+        if (group != null) {
+            registry.learnGroup(endpoint, group);
+            registry.get(group).update(limit, remaining, window == null ? RingCentralRateLimit.DEFAULT_WINDOW_SECONDS : window);
         }
         return response;
     }
-    protected void rateLimitCheck(String group){
-        RingCentralRateLimit rateLimit = rateLimitMap.get(group);
-        if(rateLimit == null){
-            rateLimit = new RingCentralRateLimit();
-            rateLimitMap.put(group, rateLimit);
-        }else{
-            rateLimit.checkRemaining();
+
+    /**
+     * Hold back the whole group for what the server asked, and this caller for its own jittered delay.
+     */
+    void backOff(String endpoint, RingCentralThrottledException throttled, long backoffMillis) {
+        RingCentralRateLimitRegistry registry = getRateLimitRegistry();
+        registry.learnGroup(endpoint, throttled.getGroup());
+        registry.get(throttled.getGroup() == null ? registry.groupFor(endpoint) : throttled.getGroup())
+                .penalize(TimeUnit.MILLISECONDS.toNanos(throttled.getRetryAfterMillis() == null ?
+                        backoffMillis : throttled.getRetryAfterMillis()));
+        sleep(throttled.getRetryAfterMillis() == null ? backoffMillis :
+                Math.max(throttled.getRetryAfterMillis(), backoffMillis));
+    }
+
+    /**
+     * A 503 may follow an applied write, so only idempotent methods retry it.
+     */
+    static boolean isRetryable(String method, int statusCode) {
+        if (statusCode == RingCentralFaultProcessor.HTTP_TOO_MANY_REQUESTS) {
+            return true;
+        }
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "PUT":
+            case "DELETE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return cache of users read by id, or null unless userCacheSize is above 0
+     */
+    protected RingCentralUserCache getUserCache() {
+        RingCentralUserCache cache = userCache;
+        if (cache == null) {
+            Integer size = configuration.getUserCacheSize();
+            if (size == null || size <= 0) {
+                return null;
+            }
+            Integer ttl = configuration.getUserCacheTtl();
+            synchronized (this) {
+                cache = userCache;
+                if (cache == null) {
+                    cache = new RingCentralUserCache(size,
+                            TimeUnit.SECONDS.toMillis(ttl == null ? RingCentralUserCache.DEFAULT_TTL_SECONDS : ttl));
+                    userCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * @return null if userBulkSize is not above 1
+     */
+    protected RingCentralBulkProcessor getBulkProcessor() {
+        Integer size = configuration.getUserBulkSize();
+        if (size == null || size <= 1) {
+            return null;
+        }
+        Integer window = configuration.getUserBulkWindow();
+        return RingCentralBulkProcessor.forAccount(configuration.getServiceUrl(), configuration.getOauth2Username(),
+                size, window == null || window < 0 ? RingCentralBulkProcessor.DEFAULT_WINDOW_MILLIS : window);
+    }
+
+    protected RingCentralBulkAssignQueue getBulkAssignQueue() {
+        Integer window = configuration.getCallQueueAssignWindow();
+        return RingCentralBulkAssignQueue.forAccount(configuration.getServiceUrl(), configuration.getOauth2Username(),
+                window == null || window < 0 ? 0 : window);
+    }
+
+    public RingCentralUserInvocator getUserInvocator() {
+        return userInvocator;
+    }
+
+    /**
+     * Lane for the next request of the current thread; defaults to background.
+     */
+    protected void setNextRequestPriority(RingCentralRequestPriority priority) {
+        nextRequestPriority.set(priority);
+    }
+
+    /**
+     * @return pool sized by the larger of callQueueMemberHydration and userListPrefetch
+     */
+    protected synchronized ExecutorService getWorkerExecutor() {
+        if (workerExecutor == null) {
+            int threads = Math.max(1, Math.max(
+                    Optional.ofNullable(configuration.getCallQueueMemberHydration()).orElse(0),
+                    Optional.ofNullable(configuration.getUserListPrefetch()).orElse(0)));
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                    WORKER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "ringcentral-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            workerExecutor = executor;
+        }
+        return workerExecutor;
+    }
+
+    /**
+     * @param cancellation stops the worker tasks of a listing read on the current thread
+     */
+    void openListing(Runnable cancellation) {
+        openListings.get().add(cancellation);
+    }
+
+    void closeListing(Runnable cancellation) {
+        openListings.get().remove(cancellation);
+    }
+
+    /**
+     * Cancel the worker tasks of listings the current thread did not read to the end.
+     */
+    public void cancelOpenListings() {
+        Set<Runnable> open = openListings.get();
+        openListings.remove();
+        for (Runnable cancellation : open) {
+            cancellation.run();
+        }
+    }
+
+    /**
+     * Decorrelated jitter between the base and three times the previous delay, capped.
+     */
+    static long nextBackoffMillis(long previousMillis) {
+        long upper = Math.min(THROTTLE_BACKOFF_CAP_MILLIS,
+                Math.max(THROTTLE_BACKOFF_BASE_MILLIS, previousMillis) * 3);
+        return ThreadLocalRandom.current().nextLong(THROTTLE_BACKOFF_BASE_MILLIS, upper + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorException(e);
+        }
+    }
+
+    private RingCentralRateLimitRegistry getRateLimitRegistry() {
+        RingCentralRateLimitRegistry registry = rateLimitRegistry;
+        if (registry == null) {
+            registry = RingCentralRateLimitRegistry.forAccount(configuration.getServiceUrl(),
+                    configuration.getOauth2Username(), configuration.getRateLimitStateFile());
+            rateLimitRegistry = registry;
+        }
+        return registry;
+    }
+
+    private static Integer parseIntHeader(Header header) {
+        Long value = parseLongHeader(header);
+        return value == null ? null : value.intValue();
+    }
+
+    private static Long parseLongHeader(Header header) {
+        try {
+            return Long.parseLong(StringUtils.trim(header.getValue()));
+        } catch (NumberFormatException nfe) {
+            return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * RingCentral answered with an error status.
+ */
+public class RingCentralFaultException extends ConnectorException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    public RingCentralFaultException(String message, int statusCode) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -22,17 +22,24 @@ import org.apache.commons.codec.Charsets;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.http.util.EntityUtils;
 import org.identityconnectors.common.logging.Log;
 import org.identityconnectors.framework.common.exceptions.*;
 
 import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 public class RingCentralFaultProcessor implements RestFaultProcessor {
 
     private static final Log LOG = Log.getLog(RingCentralFaultProcessor.class);
 
+    // not defined by HttpStatus in httpcore 4.x
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+
     private static final RingCentralFaultProcessor instance = new RingCentralFaultProcessor();
 
     public static RingCentralFaultProcessor getInstance() {
@@ -40,6 +47,11 @@ public class RingCentralFaultProcessor implements RestFaultProcessor {
     }
 
     public void process(HttpResponse httpResponse, GsonBuilder gsonBuilder) {
+        int statusCode = httpResponse.getStatusLine().getStatusCode();
+        if (statusCode == HTTP_TOO_MANY_REQUESTS || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+            handleThrottledResponse(httpResponse, statusCode);
+        }
+
         String rawResponse;
         try {
             rawResponse = EntityUtils.toString(httpResponse.getEntity(), Charsets.UTF_8);
@@ -51,10 +63,10 @@ public class RingCentralFaultProcessor implements RestFaultProcessor {
                 // received non-JSON error response from RingCentral unable to process
                 String errorMessage = "Unable to parse RingCentral response, not valid JSON: ";
                 LOG.info("{0} {1}", errorMessage, rawResponse);
-                throw new ConnectorException(errorMessage + rawResponse);
+                throw new RingCentralFaultException(errorMessage + rawResponse, statusCode);
             }
 
-            handleFaultResponse(rawResponse, gsonBuilder);
+            handleFaultResponse(rawResponse, gsonBuilder, statusCode);
 
         } catch (IOException e) {
             throw new ConnectorException("Unable to read fault response from RingCentral response. " +
@@ -64,20 +76,74 @@ public class RingCentralFaultProcessor implements RestFaultProcessor {
     }
 
 
-    private void handleFaultResponse(String rawResponse, GsonBuilder gsonBuilder) {
+    private void handleThrottledResponse(HttpResponse httpResponse, int statusCode) {
+        Long retryAfter = parseRetryAfter(httpResponse.getFirstHeader("Retry-After"));
+        Header groupHeader = httpResponse.getFirstHeader("X-Rate-Limit-Group");
+        String group = groupHeader == null ? null : StringUtils.lowerCase(groupHeader.getValue());
+        try {
+            LOG.info("RingCentral throttled request with status {0}, group {1}, retry after {2} ms: {3}",
+                    statusCode, group, retryAfter, EntityUtils.toString(httpResponse.getEntity(), Charsets.UTF_8));
+        } catch (IOException e) {
+            LOG.info("RingCentral throttled request with status {0}, group {1}, retry after {2} ms",
+                    statusCode, group, retryAfter);
+        }
+        throw new RingCentralThrottledException("RingCentral rejected request with status " + statusCode +
+                ", " + httpResponse.getStatusLine().getReasonPhrase(), statusCode, retryAfter, group);
+    }
+
+    static Long parseRetryAfter(Header retryAfterHeader) {
+        if (retryAfterHeader == null || StringUtils.isBlank(retryAfterHeader.getValue())) {
+            return null;
+        }
+        String value = StringUtils.trim(retryAfterHeader.getValue());
+        if (StringUtils.isNumeric(value)) {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value));
+        }
+        Date retryAt = DateUtils.parseDate(value);
+        return retryAt == null ? null : Math.max(0, retryAt.getTime() - System.currentTimeMillis());
+    }
+
+    private void handleFaultResponse(String rawResponse, GsonBuilder gsonBuilder, int statusCode) {
         ErrorResponse fault = gsonBuilder.create().fromJson(rawResponse, ErrorResponse.class);
         if (fault != null) {
             try {
-                matchFaultText(fault);
+                matchFaultText(fault, statusCode);
             } catch (DriverDataNotFoundException notFound) {
                 LOG.info(fault.getDetail());
             }
         } else {
-            throw new ConnectorException("Unable to read RingCentral fault information: " + rawResponse);
+            throw new RingCentralFaultException("Unable to read RingCentral fault information: " + rawResponse,
+                    statusCode);
+        }
+    }
+
+    /**
+     * Raise the error of one failed operation of a SCIM bulk response; a delete of a missing resource succeeds.
+     */
+    void processBulkFault(String method, int statusCode, ErrorResponse fault) {
+        if (statusCode == HTTP_TOO_MANY_REQUESTS || statusCode == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+            throw new RingCentralThrottledException("RingCentral rejected bulk operation with status " + statusCode,
+                    statusCode, null, null);
+        }
+        boolean delete = "DELETE".equals(method);
+        if (delete && statusCode == HttpStatus.SC_NOT_FOUND) {
+            return;
+        }
+        if (fault == null) {
+            throw new RingCentralFaultException("RingCentral bulk operation failed with status " + statusCode,
+                    statusCode);
+        }
+        try {
+            matchFaultText(fault, statusCode);
+        } catch (DriverDataNotFoundException notFound) {
+            if (!delete) {
+                throw notFound;
+            }
+            LOG.info(fault.getDetail());
         }
     }
 
-    private void matchFaultText(ErrorResponse fault) {
+    private void matchFaultText(ErrorResponse fault, int statusCode) {
         String faultMessage = fault.getDetail() == null ? fault.getMessage() : fault.getDetail();
 
         if (StringUtils.containsIgnoreCase(faultMessage, "is not found")) {
@@ -88,8 +154,8 @@ public class RingCentralFaultProcessor implements RestFaultProcessor {
         } else if (StringUtils.containsIgnoreCase(faultMessage, "Token not found")) {
             throw new DriverRenewableTokenExpiredException("RingCentral token not found");
         } else {
-            throw new ConnectorException("Unknown fault occurred with RingCentral call: " +
-                    fault);
+            throw new RingCentralFaultException("Unknown fault occurred with RingCentral call: " +
+                    fault, statusCode);
         }
     }
 }
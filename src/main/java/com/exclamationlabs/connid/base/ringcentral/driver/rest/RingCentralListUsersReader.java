@@ -0,0 +1,108 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the users of a SCIM ListResponse one at a time from the response stream.
+ */
+public class RingCentralListUsersReader implements Closeable {
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private final JsonReader reader;
+    private Integer totalResults;
+    private int usersRead;
+    private boolean inResources;
+    private boolean finished;
+
+    public RingCentralListUsersReader(InputStream inputStream) {
+        reader = new JsonReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        try {
+            reader.beginObject();
+        } catch (IOException | IllegalStateException e) {
+            throw new ConnectorException("Unable to parse RingCentral user listing", e);
+        }
+    }
+
+    /**
+     * @return null once the whole response has been read
+     */
+    public RingCentralUser nextUser() {
+        try {
+            while (!finished) {
+                if (inResources) {
+                    if (reader.hasNext()) {
+                        usersRead++;
+                        return GSON.fromJson(reader, RingCentralUser.class);
+                    }
+                    reader.endArray();
+                    inResources = false;
+                } else if (reader.hasNext()) {
+                    readField(reader.nextName());
+                } else {
+                    reader.endObject();
+                    finished = true;
+                }
+            }
+            return null;
+        } catch (IOException | IllegalStateException | JsonParseException e) {
+            throw new ConnectorException("Unable to parse RingCentral user listing", e);
+        }
+    }
+
+    private void readField(String name) throws IOException {
+        if ("Resources".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            inResources = true;
+        } else if ("totalResults".equals(name) && reader.peek() == JsonToken.NUMBER) {
+            totalResults = reader.nextInt();
+        } else {
+            reader.skipValue();
+        }
+    }
+
+    /**
+     * @return null if not read yet, as when it follows the Resources array
+     */
+    public Integer getTotalResults() {
+        return totalResults;
+    }
+
+    public int getUsersRead() {
+        return usersRead;
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException ignore) {
+            // connection is released either way
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Members of each call queue as last read, updated by the bulk-assigns sent by the connector.
+ */
+public class RingCentralMembershipCache {
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, Members> members = new ConcurrentHashMap<>();
+
+    public RingCentralMembershipCache(long ttlMillis) {
+        this(ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock current time in milliseconds
+     */
+    RingCentralMembershipCache(long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return null if not cached or older than the time to live
+     */
+    public List<String> get(String queueId) {
+        Members current = members.get(queueId);
+        if (current == null || clock.getAsLong() - current.readAt >= ttlMillis) {
+            return null;
+        }
+        synchronized (current) {
+            return new ArrayList<>(current.extensionIds);
+        }
+    }
+
+    public void put(String queueId, List<String> extensionIds) {
+        members.put(queueId, new Members(extensionIds, clock.getAsLong()));
+    }
+
+    /**
+     * Apply a sent bulk-assign; the time to live still counts from the last read.
+     */
+    public void assigned(String queueId, List<String> added, List<String> removed) {
+        Members current = members.get(queueId);
+        if (current != null) {
+            synchronized (current) {
+                current.extensionIds.removeAll(removed);
+                current.extensionIds.addAll(added);
+            }
+        }
+    }
+
+    public void invalidate(String queueId) {
+        members.remove(queueId);
+    }
+
+    private static class Members {
+        private final Set<String> extensionIds;
+        private final long readAt;
+
+        private Members(List<String> extensionIds, long readAt) {
+            this.extensionIds = new LinkedHashSet<>(extensionIds);
+            this.readAt = readAt;
+        }
+    }
+}
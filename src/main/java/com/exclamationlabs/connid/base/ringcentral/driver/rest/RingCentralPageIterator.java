@@ -0,0 +1,67 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator requesting the next page of a listing once the current one is consumed.
+ */
+public abstract class RingCentralPageIterator<T> implements Iterator<T> {
+
+    private final Integer max;
+    private Iterator<T> current = Collections.emptyIterator();
+    private boolean exhausted;
+    private int returned;
+
+    /**
+     * @param max null for no limit
+     */
+    protected RingCentralPageIterator(Integer max) {
+        this.max = max != null && max > 0 ? max : null;
+    }
+
+    /**
+     * @return null when there are no more pages
+     */
+    protected abstract List<T> nextPage();
+
+    @Override
+    public boolean hasNext() {
+        if (max != null && returned >= max) {
+            return false;
+        }
+        while (!current.hasNext() && !exhausted) {
+            List<T> page = nextPage();
+            if (page == null) {
+                exhausted = true;
+            } else {
+                current = page.iterator();
+            }
+        }
+        return current.hasNext();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        returned++;
+        return current.next();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.function.Supplier;
+
+/**
+ * Read-only set fetching a paged listing as it is iterated; {@link #size()} walks it once.
+ */
+public class RingCentralPagedSet<T> extends AbstractSet<T> {
+
+    private final Supplier<Iterator<T>> iterators;
+    private Integer size;
+
+    public RingCentralPagedSet(Supplier<Iterator<T>> iterators) {
+        this.iterators = iterators;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return iterators.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !iterator().hasNext();
+    }
+
+    @Override
+    public synchronized int size() {
+        if (size == null) {
+            int count = 0;
+            for (Iterator<T> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+                count++;
+            }
+            size = count;
+        }
+        return size;
+    }
+}
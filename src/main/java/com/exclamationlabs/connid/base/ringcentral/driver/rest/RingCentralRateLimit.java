@@ -1,48 +1,198 @@
 package com.exclamationlabs.connid.base.ringcentral.driver.rest;
 
-import org.apache.commons.codec.binary.StringUtils;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
 
-import java.time.Instant;
-import java.time.Duration;
-import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Token bucket for one RingCentral API group, seeded from the X-Rate-Limit headers.
+ * The level is kept as the theoretical arrival time of the next permit, updated by CAS.
+ */
 public class RingCentralRateLimit {
-    private LinkedList<Instant> queue = new LinkedList();
-    private String remaining;
 
-    protected void enqueue(long expiration) {
-        clear();
-        checkRemaining();
-        queue.add(Instant.now().plusSeconds(expiration));
+    static final long DEFAULT_WINDOW_SECONDS = 60;
+    static final double INTERACTIVE_RESERVED_SHARE = 0.2;
+
+    private volatile Parameters parameters;
+    private final RingCentralRateLimitState theoreticalArrival;
+    private final RingCentralConcurrencyLimit concurrencyLimit = new RingCentralConcurrencyLimit();
+
+    public RingCentralRateLimit() {
+        this(RingCentralRateLimitState.inMemory());
+    }
+
+    public RingCentralRateLimit(RingCentralRateLimitState state) {
+        theoreticalArrival = state;
+    }
+
+    protected void acquire() {
+        acquire(RingCentralRequestPriority.BACKGROUND);
+    }
+
+    /**
+     * Block until a request of this group may be sent; pair with {@link #release(RingCentralRequestPriority)}.
+     * Background requests also wait for an in-flight slot and leave the interactive reserve alone.
+     */
+    protected void acquire(RingCentralRequestPriority priority) {
+        if (priority == RingCentralRequestPriority.INTERACTIVE) {
+            park(reserve());
+            return;
+        }
+        concurrencyLimit.acquire();
+        try {
+            long waitNanos;
+            while ((waitNanos = tryReserveBackground()) > 0) {
+                park(waitNanos);
+            }
+        } catch (RuntimeException e) {
+            concurrencyLimit.release();
+            throw e;
+        }
+    }
+
+    protected void release() {
+        release(RingCentralRequestPriority.BACKGROUND);
+    }
+
+    protected void release(RingCentralRequestPriority priority) {
+        if (priority != RingCentralRequestPriority.INTERACTIVE) {
+            concurrencyLimit.release();
+        }
+    }
+
+    /**
+     * Block the calling thread until the wait is over or it is interrupted.
+     */
+    void park(long waitNanos) {
+        long deadline = System.nanoTime() + waitNanos;
+        while (waitNanos > 0) {
+            LockSupport.parkNanos(this, waitNanos);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new ConnectorException(new InterruptedException("Interrupted waiting for RingCentral rate limit"));
+            }
+            waitNanos = deadline - System.nanoTime();
+        }
     }
 
-    protected void sleep() throws InterruptedException {
-        if(queue.size() == 0){
-            Thread.sleep(60000);
+    /**
+     * @return nanoseconds to wait for the permit just reserved
+     */
+    long reserve() {
+        Parameters current = parameters;
+        if (current == null) {
+            return 0;
         }
-        while(queue.size() > 0 && !Duration.between(Instant.now(),queue.peek()).isNegative()){
-            Thread.sleep(2000);
+        while (true) {
+            long now = theoreticalArrival.currentTime();
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + current.emissionNanos;
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return Math.max(0, next - current.windowNanos - now);
+            }
+        }
+    }
+
+    /**
+     * @return 0 if a permit outside the interactive reserve was taken, otherwise nanoseconds to wait
+     */
+    long tryReserveBackground() {
+        Parameters current = parameters;
+        if (current == null) {
+            return 0;
+        }
+        while (true) {
+            long now = theoreticalArrival.currentTime();
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + current.emissionNanos;
+            long waitNanos = next - (current.windowNanos - current.reservedNanos) - now;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return 0;
+            }
         }
-        queue.remove();
     }
-    private void clear() {
-        while(queue.size() > 0 && Duration.between(Instant.now(),queue.peek()).isNegative()){
-            queue.remove();
+
+    /**
+     * Reseed from X-Rate-Limit-Limit, -Remaining and -Window; any of them may be null.
+     */
+    protected void update(Integer limit, Integer remaining, Long windowSeconds) {
+        Parameters current = parameters;
+        int newLimit = limit != null && limit > 0 ? limit : current == null ? 0 : current.limit;
+        if (newLimit <= 0) {
+            return;
+        }
+        long newWindow = windowSeconds != null && windowSeconds > 0 ? TimeUnit.SECONDS.toNanos(windowSeconds) :
+                current == null ? TimeUnit.SECONDS.toNanos(DEFAULT_WINDOW_SECONDS) : current.windowNanos;
+        if (current == null || current.limit != newLimit || current.windowNanos != newWindow) {
+            current = new Parameters(newLimit, newWindow);
+            parameters = current;
+        }
+        if (remaining == null) {
+            return;
+        }
+        concurrencyLimit.onResponse(current.limit, remaining);
+        // Requests already granted locally may not be reflected in the
+        // server count yet, so a header can only lower the local level.
+        long used = Math.max(0, current.limit - Math.min(current.limit, remaining));
+        while (true) {
+            long now = theoreticalArrival.currentTime();
+            long arrival = theoreticalArrival.get();
+            long serverArrival = now + used * current.emissionNanos;
+            if (serverArrival - arrival <= 0 || theoreticalArrival.compareAndSet(arrival, serverArrival)) {
+                return;
+            }
         }
     }
 
-    public void setRemaining(String remaining) {
-        this.remaining = remaining;
+    RingCentralConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
     }
 
-    protected void checkRemaining(){
-        if(StringUtils.equals(remaining,"0")) {
-            try {
-                sleep();
-            } catch (InterruptedException e) {
-                throw new ConnectorException(e);
+    /**
+     * Hold back the whole group after a throttled response.
+     * @return false if the group limit is not known yet
+     */
+    protected boolean penalize(long delayNanos) {
+        concurrencyLimit.onThrottled();
+        Parameters current = parameters;
+        if (current == null) {
+            return false;
+        }
+        while (true) {
+            long now = theoreticalArrival.currentTime();
+            long arrival = theoreticalArrival.get();
+            // the next reservation then lands exactly delayNanos from now with an empty bucket
+            long penalized = now + current.windowNanos - current.emissionNanos + delayNanos;
+            if (penalized - arrival <= 0 || theoreticalArrival.compareAndSet(arrival, penalized)) {
+                return true;
             }
         }
     }
+
+    double getAvailablePermits() {
+        Parameters current = parameters;
+        if (current == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        long backlog = Math.max(0, theoreticalArrival.get() - theoreticalArrival.currentTime());
+        return current.limit - (double) backlog / current.emissionNanos;
+    }
+
+    private static final class Parameters {
+        private final int limit;
+        private final long windowNanos;
+        private final long emissionNanos;
+        private final long reservedNanos;
+
+        private Parameters(int limit, long windowNanos) {
+            this.limit = limit;
+            this.windowNanos = windowNanos;
+            this.emissionNanos = Math.max(1, windowNanos / limit);
+            this.reservedNanos = (long) Math.ceil(limit * INTERACTIVE_RESERVED_SHARE) * emissionNanos;
+        }
+    }
 }
@@ -0,0 +1,98 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Rate limits of one RingCentral account by API group, and the group learned for each endpoint.
+ */
+public class RingCentralRateLimitRegistry {
+
+    private static final ConcurrentMap<String, RingCentralRateLimitRegistry> accountRegistries =
+            new ConcurrentHashMap<>();
+
+    static final String DEFAULT_READ_GROUP = "light";
+    static final String DEFAULT_WRITE_GROUP = "heavy";
+
+    private final ConcurrentMap<String, RingCentralRateLimit> rateLimits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> endpointGroups = new ConcurrentHashMap<>();
+    private final String accountKey;
+    private final RingCentralSharedRateLimitFile sharedFile;
+
+    RingCentralRateLimitRegistry(String accountKey, RingCentralSharedRateLimitFile sharedFile) {
+        this.accountKey = accountKey;
+        this.sharedFile = sharedFile;
+    }
+
+    public static RingCentralRateLimitRegistry forAccount(String serviceUrl, String username) {
+        return forAccount(serviceUrl, username, null);
+    }
+
+    public static RingCentralRateLimitRegistry forAccount(String serviceUrl, String username, String stateFile) {
+        String account = accountKey(serviceUrl, username);
+        String path = StringUtils.trimToNull(stateFile);
+        return accountRegistries.computeIfAbsent(path == null ? account : account + "|" + path,
+                key -> new RingCentralRateLimitRegistry(account,
+                        path == null ? null : RingCentralSharedRateLimitFile.open(path)));
+    }
+
+    static String accountKey(String serviceUrl, String username) {
+        return StringUtils.lowerCase(StringUtils.removeEnd(StringUtils.trimToEmpty(serviceUrl), "/")) +
+                "|" + StringUtils.trimToEmpty(username);
+    }
+
+    public RingCentralRateLimit get(String group) {
+        return rateLimits.computeIfAbsent(StringUtils.lowerCase(group), key -> sharedFile == null ?
+                new RingCentralRateLimit() : new RingCentralRateLimit(sharedFile.slot(accountKey + "|" + key)));
+    }
+
+    /**
+     * @return group learned for the endpoint, or the default for its method
+     */
+    public String groupFor(String endpoint) {
+        String group = endpointGroups.get(endpoint);
+        if (group != null) {
+            return group;
+        }
+        return StringUtils.startsWith(endpoint, "GET ") ? DEFAULT_READ_GROUP : DEFAULT_WRITE_GROUP;
+    }
+
+    public void learnGroup(String endpoint, String group) {
+        if (StringUtils.isNotBlank(group)) {
+            endpointGroups.put(endpoint, StringUtils.lowerCase(group));
+        }
+    }
+
+    /**
+     * @return e.g. {@code GET /restapi/v1.0/account/~/call-queues/{id}/members}
+     */
+    static String endpointKey(String method, URI uri) {
+        String[] segments = StringUtils.split(StringUtils.defaultString(uri.getRawPath()), '/');
+        StringBuilder template = new StringBuilder(StringUtils.upperCase(method)).append(' ');
+        for (String segment : segments) {
+            template.append('/').append(isIdentifier(segment) ? "{id}" : segment);
+        }
+        return template.toString();
+    }
+
+    private static boolean isIdentifier(String segment) {
+        return StringUtils.isNumeric(segment) ||
+                (segment.length() >= 16 && segment.matches("[0-9A-Fa-f-]+"));
+    }
+}
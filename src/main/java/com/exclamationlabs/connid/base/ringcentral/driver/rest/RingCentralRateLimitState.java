@@ -0,0 +1,49 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Theoretical arrival time of a rate limit group and the clock it is measured against.
+ */
+public interface RingCentralRateLimitState {
+
+    long currentTime();
+
+    long get();
+
+    boolean compareAndSet(long expected, long updated);
+
+    static RingCentralRateLimitState inMemory() {
+        return new RingCentralRateLimitState() {
+            private final AtomicLong arrival = new AtomicLong(System.nanoTime());
+
+            @Override
+            public long currentTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public long get() {
+                return arrival.get();
+            }
+
+            @Override
+            public boolean compareAndSet(long expected, long updated) {
+                return arrival.compareAndSet(expected, updated);
+            }
+        };
+    }
+}
@@ -0,0 +1,179 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memory-mapped table of rate limit slots shared by every process mapping the file. Each
+ * slot holds a key hash and an arrival time, updated under a file lock on its byte range.
+ */
+public class RingCentralSharedRateLimitFile {
+
+    private static final Log LOG = Log.getLog(RingCentralSharedRateLimitFile.class);
+
+    private static final int MAGIC = 0x5243524C; // "RCRL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 16;
+    private static final int SLOT_COUNT = 1024;
+    private static final int FILE_SIZE = HEADER_SIZE + SLOT_SIZE * SLOT_COUNT;
+
+    private static final ConcurrentMap<String, RingCentralSharedRateLimitFile> openFiles = new ConcurrentHashMap<>();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ReentrantLock[] stripes = new ReentrantLock[SLOT_COUNT];
+
+    RingCentralSharedRateLimitFile(File file) throws IOException {
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        FileLock headerLock = channel.lock(0, HEADER_SIZE, false);
+        try {
+            if (channel.size() < FILE_SIZE) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(FILE_SIZE), 0);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+            if (buffer.getInt(0) != MAGIC) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, FORMAT_VERSION);
+                buffer.putInt(8, SLOT_COUNT);
+                buffer.force();
+            } else if (buffer.getInt(4) != FORMAT_VERSION || buffer.getInt(8) != SLOT_COUNT) {
+                throw new ConnectorException("Rate limit state file " + file + " has an incompatible format");
+            }
+        } finally {
+            headerLock.release();
+        }
+    }
+
+    public static RingCentralSharedRateLimitFile open(String path) {
+        File file = new File(path).getAbsoluteFile();
+        return openFiles.computeIfAbsent(file.getPath(), key -> {
+            try {
+                LOG.info("Using shared RingCentral rate limit state file {0}", key);
+                return new RingCentralSharedRateLimitFile(file);
+            } catch (IOException e) {
+                throw new ConnectorException("Unable to open rate limit state file " + key, e);
+            }
+        });
+    }
+
+    /**
+     * @param key identity of the account and rate limit group
+     */
+    public RingCentralRateLimitState slot(String key) {
+        long hash = keyHash(key);
+        int start = (int) Math.floorMod(hash, (long) SLOT_COUNT);
+        for (int probe = 0; probe < SLOT_COUNT; probe++) {
+            int index = (start + probe) % SLOT_COUNT;
+            long existing = withSlotLock(index, () -> {
+                long current = buffer.getLong(offset(index));
+                if (current == 0) {
+                    buffer.putLong(offset(index), hash);
+                    buffer.putLong(offset(index) + 8, 0L);
+                    return hash;
+                }
+                return current;
+            });
+            if (existing == hash) {
+                return new SlotState(index);
+            }
+        }
+        throw new ConnectorException("Rate limit state file is full, unable to allocate slot for " + key);
+    }
+
+    private static long keyHash(String key) {
+        // FNV-1a; must be stable across JVMs, so String.hashCode() is not used
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static int offset(int index) {
+        return HEADER_SIZE + index * SLOT_SIZE;
+    }
+
+    private long withSlotLock(int index, SlotOperation operation) {
+        ReentrantLock stripe = stripes[index];
+        stripe.lock();
+        try {
+            FileLock slotLock = channel.lock(offset(index), SLOT_SIZE, false);
+            try {
+                return operation.apply();
+            } finally {
+                slotLock.release();
+            }
+        } catch (IOException e) {
+            throw new ConnectorException("Unable to lock rate limit state file", e);
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private interface SlotOperation {
+        long apply();
+    }
+
+    private class SlotState implements RingCentralRateLimitState {
+        private final int valueOffset;
+        private final int index;
+
+        private SlotState(int index) {
+            this.index = index;
+            this.valueOffset = offset(index) + 8;
+        }
+
+        @Override
+        public long currentTime() {
+            return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        }
+
+        @Override
+        public long get() {
+            return withSlotLock(index, () -> buffer.getLong(valueOffset));
+        }
+
+        @Override
+        public boolean compareAndSet(long expected, long updated) {
+            return withSlotLock(index, () -> {
+                if (buffer.getLong(valueOffset) != expected) {
+                    return 0L;
+                }
+                buffer.putLong(valueOffset, updated);
+                return 1L;
+            }) == 1L;
+        }
+    }
+}
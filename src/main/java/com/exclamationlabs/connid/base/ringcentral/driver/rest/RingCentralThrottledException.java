@@ -0,0 +1,45 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+/**
+ * RingCentral answered HTTP 429 or 503.
+ */
+public class RingCentralThrottledException extends RingCentralFaultException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long retryAfterMillis;
+    private final String group;
+
+    public RingCentralThrottledException(String message, int statusCode, Long retryAfterMillis, String group) {
+        super(message, statusCode);
+        this.retryAfterMillis = retryAfterMillis;
+        this.group = group;
+    }
+
+    /**
+     * @return Retry-After, or null
+     */
+    public Long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * @return X-Rate-Limit-Group, or null
+     */
+    public String getGroup() {
+        return group;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * LRU cache of users read by id; entries past the time to live are kept for ETag revalidation.
+ * Users are copied in and out, so callers may modify what they get.
+ */
+public class RingCentralUserCache {
+
+    static final int DEFAULT_TTL_SECONDS = 30;
+
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, CachedUser> entries;
+
+    public RingCentralUserCache(int maxSize, long ttlMillis) {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock current time in milliseconds
+     */
+    RingCentralUserCache(int maxSize, long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, CachedUser>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return fresh or stale entry, or null
+     */
+    public synchronized CachedUser get(String userId) {
+        return entries.get(userId);
+    }
+
+    public synchronized void put(String userId, RingCentralUser user, String entityTag) {
+        if (user == null) {
+            entries.remove(userId);
+        } else {
+            entries.put(userId, new CachedUser(copy(user), entityTag, clock.getAsLong()));
+        }
+    }
+
+    /**
+     * Restart the time to live after a 304.
+     */
+    public synchronized void revalidated(String userId) {
+        CachedUser entry = entries.get(userId);
+        if (entry != null) {
+            entries.put(userId, new CachedUser(entry.user, entry.entityTag, clock.getAsLong()));
+        }
+    }
+
+    public synchronized void invalidate(String userId) {
+        entries.remove(userId);
+    }
+
+    private static RingCentralUser copy(RingCentralUser user) {
+        return GSON.fromJson(GSON.toJsonTree(user), RingCentralUser.class);
+    }
+
+    public class CachedUser {
+        private final RingCentralUser user;
+        private final String entityTag;
+        private final long cachedAt;
+
+        private CachedUser(RingCentralUser user, String entityTag, long cachedAt) {
+            this.user = user;
+            this.entityTag = entityTag;
+            this.cachedAt = cachedAt;
+        }
+
+        public RingCentralUser getUser() {
+            return copy(user);
+        }
+
+        public String getEntityTag() {
+            return entityTag;
+        }
+
+        public boolean isFresh() {
+            return clock.getAsLong() - cachedAt < ttlMillis;
+        }
+    }
+}
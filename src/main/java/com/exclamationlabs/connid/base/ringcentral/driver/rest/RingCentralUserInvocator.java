@@ -13,127 +13,541 @@
 
 package com.exclamationlabs.connid.base.ringcentral.driver.rest;
 
+import com.exclamationlabs.connid.base.connector.BaseConnector;
 import com.exclamationlabs.connid.base.connector.driver.DriverInvocator;
+import com.exclamationlabs.connid.base.connector.driver.exception.DriverDataNotFoundException;
+import com.exclamationlabs.connid.base.connector.driver.rest.RestResponseData;
 import com.exclamationlabs.connid.base.connector.results.ResultsFilter;
 import com.exclamationlabs.connid.base.connector.results.ResultsPaginator;
+import com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserProjection;
+import com.exclamationlabs.connid.base.ringcentral.model.request.UserPatchOperation;
+import com.exclamationlabs.connid.base.ringcentral.model.request.UserPatchRequest;
 import com.exclamationlabs.connid.base.ringcentral.model.response.ListUsersResponse;
 import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
 import com.exclamationlabs.connid.base.ringcentral.model.user.extension.RingCentralUserExtension;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
 import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.UnknownUidException;
 
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.Future;
 
 public class RingCentralUserInvocator implements DriverInvocator<RingCentralDriver, RingCentralUser> {
 
+    private static final Log LOG = Log.getLog(RingCentralUserInvocator.class);
+
+    static final int PAGE_SIZE = 1000;
+
+    /**
+     * Filter attribute whose value is a URL encoded SCIM filter expression.
+     */
+    public static final String SCIM_FILTER_ATTRIBUTE = "SCIM_FILTER";
+
     @Override
     public String create(RingCentralDriver driver, RingCentralUser userModel) throws ConnectorException {
-        // Create user extension
+        return createScimUser(driver, userModel, createExtension(driver, userModel));
+    }
+
+    /**
+     * @return id of the new extension, or null if RingCentral did not return one
+     */
+    String createExtension(RingCentralDriver driver, RingCentralUser userModel) {
         RingCentralUserExtension userExtension = new RingCentralUserExtension();
         userExtension.getContact().setEmail(userModel.getEmails().get(0).getValue());
         userExtension.getContact().setFirstName(userModel.getName().getGivenName());
         userExtension.getContact().setLastName(userModel.getName().getFamilyName());
         userExtension.setType("User");
-        driver.executePostRequest(RingCentralDriver.EXTENSION_API_PATH,
-                RingCentralUserExtension.class, userExtension);
-
-        driver.rateLimitCheck("heavy");
-        RingCentralUser responseUser = driver.executePostRequest(RingCentralDriver.API_PATH + "Users",
-                RingCentralUser.class, userModel).getResponseObject();
+        RingCentralUserExtension responseExtension = driver.executePostRequest(RingCentralDriver.EXTENSION_API_PATH,
+                RingCentralUserExtension.class, userExtension).getResponseObject();
+        return responseExtension == null ? null : responseExtension.getId();
+    }
 
-        if (responseUser == null || responseUser.getId() == null) {
+    /**
+     * Add the SCIM user, deleting the extension again only if RingCentral definitely rejected the user.
+     */
+    String createScimUser(RingCentralDriver driver, RingCentralUser userModel, String extensionId) {
+        String userId;
+        try {
+            RingCentralBulkProcessor bulkProcessor = driver.getBulkProcessor();
+            if (bulkProcessor != null) {
+                userId = bulkProcessor.execute(driver, "POST", "/Users", userModel).getResourceId();
+            } else {
+                RingCentralUser responseUser = driver.executePostRequest(RingCentralDriver.API_PATH + "Users",
+                        RingCentralUser.class, userModel).getResponseObject();
+                userId = responseUser == null ? null : responseUser.getId();
+            }
+        } catch (RuntimeException e) {
+            if (isRejection(e)) {
+                rollbackExtension(driver, extensionId);
+            } else if (extensionId != null) {
+                // a timeout or server error may follow a created user, so the extension is kept
+                LOG.warn("Kept extension {0} after user creation ended without a rejection", extensionId);
+            }
+            throw e;
+        }
+        if (userId == null) {
+            // the user may still have been created, so the extension is kept
             throw new ConnectorException("Response from user creation was invalid");
         }
-        return responseUser.getId();
+        return userId;
     }
 
-    @Override
-    public void update(RingCentralDriver driver, String userId, RingCentralUser modifiedUser) throws ConnectorException {
-        driver.rateLimitCheck("light");
-        RingCentralUser currentUser = getOne(driver, userId, Collections.emptyMap());
-        updateCurrentUser(currentUser, modifiedUser);
-
-        driver.rateLimitCheck("heavy");
+    private static boolean isRejection(RuntimeException e) {
+        if (e instanceof AlreadyExistsException) {
+            return true;
+        }
+        if (!(e instanceof RingCentralFaultException)) {
+            return false;
+        }
+        int statusCode = ((RingCentralFaultException) e).getStatusCode();
+        return statusCode >= 400 && statusCode < 500 && statusCode != RingCentralFaultProcessor.HTTP_TOO_MANY_REQUESTS;
+    }
 
-        RingCentralUser responseUser = driver.executePutRequest(RingCentralDriver.API_PATH +
-                "Users/" + userId, RingCentralUser.class, modifiedUser).getResponseObject();
+    private static void rollbackExtension(RingCentralDriver driver, String extensionId) {
+        if (extensionId == null) {
+            return;
+        }
+        try {
+            driver.executeDeleteRequest(RingCentralDriver.EXTENSION_API_PATH + "/" + extensionId, null);
+        } catch (RuntimeException e) {
+            LOG.warn(e, "Unable to delete extension {0} of failed user creation", extensionId);
+        }
+    }
 
-        if (responseUser == null || responseUser.getId() == null) {
-            throw new ConnectorException("Response from user update was invalid");
+    @Override
+    public void update(RingCentralDriver driver, String userId, RingCentralUser modifiedUser) throws ConnectorException {
+        List<UserPatchOperation> operations = modifiedUser.getPatchOperations();
+        if (operations == null || operations.isEmpty()) {
+            return;
         }
+        UserPatchRequest request = new UserPatchRequest();
+        request.setOperations(operations);
+        RingCentralBulkProcessor bulkProcessor = driver.getBulkProcessor();
+        try {
+            if (bulkProcessor != null) {
+                bulkProcessor.execute(driver, "PATCH", "/Users/" + userId, request);
+                return;
+            }
+            RestResponseData<RingCentralUser> response;
+            try {
+                response = driver.executePatchRequest(RingCentralDriver.API_PATH + "Users/" + userId,
+                        RingCentralUser.class, request);
+            } catch (IllegalArgumentException ill) {
+                // PATCH may answer HTTP 204 without a body, which is not supported well by base framework
+                return;
+            }
+            if (response == null || response.getResponseObject() == null) {
+                // the fault processor leaves an empty response for data not found
+                throw userNotFound(userId);
+            }
+        } catch (DriverDataNotFoundException notFound) {
+            throw userNotFound(userId);
+        } catch (RingCentralFaultException e) {
+            if (e.getStatusCode() == HttpStatus.SC_NOT_FOUND) {
+                throw userNotFound(userId);
+            }
+            throw e;
+        } finally {
+            invalidateCachedUser(driver, userId);
+        }
+    }
+
+    private static UnknownUidException userNotFound(String userId) {
+        return new UnknownUidException("RingCentral user " + userId + " not found");
     }
 
     @Override
     public void delete(RingCentralDriver driver, String userId) throws ConnectorException {
-        driver.rateLimitCheck("heavy");
-        driver.executeDeleteRequest(RingCentralDriver.API_PATH + "Users/" + userId, null);
+        RingCentralBulkProcessor bulkProcessor = driver.getBulkProcessor();
+        try {
+            if (bulkProcessor != null) {
+                bulkProcessor.execute(driver, "DELETE", "/Users/" + userId, null);
+            } else {
+                driver.executeDeleteRequest(RingCentralDriver.API_PATH + "Users/" + userId, null);
+            }
+        } finally {
+            invalidateCachedUser(driver, userId);
+        }
     }
 
     @Override
     public Set<RingCentralUser> getAll(RingCentralDriver driver, ResultsFilter filter,
                                        ResultsPaginator paginator, Integer max) throws ConnectorException {
-        driver.rateLimitCheck("light");
-        if (filter.hasFilter()) {
-            final String FILTER_PART = "?count=1000&filter=userName%20eq%20";
-            final String FILTER_PART2 = "\"" + filter.getValue() + "\"";
-            ListUsersResponse response;
-            try {
-                response = driver.executeGetRequest(RingCentralDriver.API_PATH +
-                                "Users" + FILTER_PART + URLEncoder.encode(FILTER_PART2, StandardCharsets.UTF_8.name()), ListUsersResponse.class,
-                        Collections.emptyMap()).getResponseObject();
-            } catch (UnsupportedEncodingException e) {
-                throw new ConnectorException(e);
-            }
-            return new HashSet<>(response.getUsers());
-        } else {
-
-            ListUsersResponse response = driver.executeGetRequest(RingCentralDriver.API_PATH +
-                            "Users?count=1000", ListUsersResponse.class,
-                    Collections.emptyMap()).getResponseObject();
-            return new HashSet<>(response.getUsers());
+        String query = "";
+        if (filter.hasFilter() && StringUtils.equalsIgnoreCase(filter.getAttribute(), SCIM_FILTER_ATTRIBUTE)) {
+            // already encoded by scimFilterQuery
+            query = "&filter=" + filter.getValue();
+        } else if (filter.hasFilter()) {
+            query = "&filter=" + encode("userName eq \"" + filter.getValue() + "\"");
         }
+        String attributes = RingCentralUserProjection.scimAttributes();
+        if (attributes != null) {
+            query += "&attributes=" + encode(attributes);
+        }
+        final String filterQuery = query;
 
+        if (paginator != null && paginator.hasPagination()) {
+            // a single page requested by the framework
+            int startIndex = paginator.getCurrentOffset() == null ? 1 : Math.max(1, paginator.getCurrentOffset());
+            int count = paginator.getPageSize() == null ? PAGE_SIZE : paginator.getPageSize();
+            return new RingCentralPagedSet<>(() -> new UserStreamIterator(driver, filterQuery, startIndex, count, true, max));
+        }
+        Integer prefetch = driver.getConfiguration().getUserListPrefetch();
+        if (prefetch != null && prefetch > 0) {
+            return new RingCentralPagedSet<>(() ->
+                    new PrefetchingUserPageIterator(driver, filterQuery, PAGE_SIZE, prefetch, max));
+        }
+        return new RingCentralPagedSet<>(() -> new UserStreamIterator(driver, filterQuery, 1, PAGE_SIZE, false, max));
     }
 
     @Override
     public RingCentralUser getOne(RingCentralDriver driver, String userId, Map<String, Object> map) throws ConnectorException {
-        driver.rateLimitCheck("light");
-        return driver.executeGetRequest(
-                RingCentralDriver.API_PATH + "Users/" + userId, RingCentralUser.class, Collections.emptyMap()).getResponseObject();
+        RingCentralUserCache cache = driver.getUserCache();
+        RingCentralUserCache.CachedUser cached = cache == null ? null : cache.get(userId);
+        if (cached != null && cached.isFresh()) {
+            return cached.getUser();
+        }
+
+        String attributes = RingCentralUserProjection.scimAttributes();
+        driver.setNextRequestPriority(RingCentralRequestPriority.INTERACTIVE);
+        if (cache == null || (cached == null && attributes != null)) {
+            // a projected read is not a complete user, so it is not cached
+            return driver.executeGetRequest(RingCentralDriver.API_PATH + "Users/" + userId +
+                            (attributes == null ? "" : "?attributes=" + encode(attributes)),
+                    RingCentralUser.class, Collections.emptyMap()).getResponseObject();
+        }
+
+        RingCentralConditionalResponse<RingCentralUser> response = driver.executeConditionalGetRequest(
+                RingCentralDriver.API_PATH + "Users/" + userId, RingCentralUser.class,
+                cached == null ? null : cached.getEntityTag());
+        if (response.isNotModified() && cached != null) {
+            cache.revalidated(userId);
+            return cached.getUser();
+        }
+        RingCentralUser user = response.getResponseObject();
+        cache.put(userId, user, response.getEntityTag() != null ? response.getEntityTag() :
+                user == null || user.getMeta() == null ? null : user.getMeta().getVersion());
+        return user;
+    }
+
+    /**
+     * @return users with a meta.lastModified not before the instant, oldest first; all users are
+     * scanned if RingCentral answers that the filter is invalid or not supported
+     */
+    public List<RingCentralUser> getModifiedSince(RingCentralDriver driver, Instant since) {
+        ResultsFilter modifiedFilter = new ResultsFilter(SCIM_FILTER_ATTRIBUTE,
+                encode("meta.lastModified ge \"" + since + "\""));
+        Iterator<RingCentralUser> users = getAll(driver, modifiedFilter, null, null).iterator();
+        try {
+            // reads the first page, which is where an unsupported filter is rejected
+            users.hasNext();
+        } catch (RingCentralFaultException e) {
+            if (e.getStatusCode() != HttpStatus.SC_BAD_REQUEST && e.getStatusCode() != HttpStatus.SC_NOT_IMPLEMENTED) {
+                throw e;
+            }
+            LOG.info("RingCentral did not accept a meta.lastModified filter, scanning all users: {0}", e.getMessage());
+            users = getAll(driver, new ResultsFilter(), null, null).iterator();
+        }
+        List<RingCentralUser> changed = new ArrayList<>();
+        while (users.hasNext()) {
+            RingCentralUser user = users.next();
+            if (user.getMeta() != null && user.getMeta().getLastModified() != null &&
+                    !parseTimestamp(user.getMeta().getLastModified()).isBefore(since)) {
+                changed.add(user);
+            }
+        }
+        changed.sort(Comparator.comparing(user -> parseTimestamp(user.getMeta().getLastModified())));
+        return changed;
+    }
+
+    /**
+     * @return server time from the Date header, or the local time if there is none
+     */
+    public Instant getServerTime(RingCentralDriver driver) {
+        RestResponseData<ListUsersResponse> response = driver.executeGetRequest(RingCentralDriver.API_PATH +
+                "Users?startIndex=1&count=1", ListUsersResponse.class, Collections.emptyMap());
+        Header[] headers = response == null ? null : response.getResponseHeaders();
+        for (Header header : headers == null ? new Header[0] : headers) {
+            if (HttpHeaders.DATE.equalsIgnoreCase(header.getName())) {
+                Date date = DateUtils.parseDate(header.getValue());
+                if (date != null) {
+                    return date.toInstant();
+                }
+            }
+        }
+        LOG.info("RingCentral response had no Date header, using local time for the sync token");
+        return Instant.now();
     }
 
-    private void updateCurrentUser(final RingCentralUser currentUser, RingCentralUser modifiedUser) {
-        if (modifiedUser.getUserName() == null) {
-            modifiedUser.setUserName(currentUser.getUserName());
+    public static Instant parseTimestamp(String timestamp) {
+        try {
+            return Instant.parse(timestamp);
+        } catch (DateTimeParseException e) {
+            throw new ConnectorException("Invalid RingCentral timestamp " + timestamp, e);
         }
+    }
+
+    private static void invalidateCachedUser(RingCentralDriver driver, String userId) {
+        RingCentralUserCache cache = driver.getUserCache();
+        if (cache != null) {
+            cache.invalidate(userId);
+        }
+    }
 
-        if (modifiedUser.getName() == null) {
-            modifiedUser.setName(currentUser.getName());
-        } else {
-            if (modifiedUser.getName().getFamilyName() == null) {
-                modifiedUser.getName().setFamilyName(currentUser.getName().getFamilyName());
+    /**
+     * @param scimFilter SCIM filter expression, such as {@code userName sw "jane"}
+     */
+    public static String scimFilterQuery(String scimFilter) {
+        return SCIM_FILTER_ATTRIBUTE + BaseConnector.FILTER_SEPARATOR + encode(scimFilter);
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name()).replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new ConnectorException(e);
+        }
+    }
+
+    private static ListUsersResponse fetchUserPage(RingCentralDriver driver, String filterQuery,
+                                                   int startIndex, int count) {
+        InputStream body = driver.executeStreamingGetRequest(RingCentralDriver.API_PATH +
+                "Users?startIndex=" + startIndex + "&count=" + count + filterQuery);
+        if (body == null) {
+            return null;
+        }
+        try (RingCentralListUsersReader reader = new RingCentralListUsersReader(body)) {
+            List<RingCentralUser> users = new ArrayList<>();
+            for (RingCentralUser user = reader.nextUser(); user != null; user = reader.nextUser()) {
+                users.add(user);
             }
-            if (modifiedUser.getName().getGivenName() == null) {
-                modifiedUser.getName().setGivenName(currentUser.getName().getGivenName());
+            ListUsersResponse page = new ListUsersResponse();
+            page.setUsers(users);
+            page.setTotalResults(reader.getTotalResults());
+            return page;
+        }
+    }
+
+    private static List<RingCentralUser> usersOf(ListUsersResponse response) {
+        return response == null || response.getUsers() == null ? Collections.emptyList() : response.getUsers();
+    }
+
+    /**
+     * Walks SCIM Users pages until totalResults, parsing each as it is read.
+     */
+    private static class UserStreamIterator implements Iterator<RingCentralUser> {
+        private final RingCentralDriver driver;
+        private final String filterQuery;
+        private final int count;
+        private final boolean singlePage;
+        private final Integer max;
+        private int startIndex;
+        private int returned;
+        private boolean done;
+        private RingCentralListUsersReader reader;
+        private RingCentralUser nextUser;
+        private final Runnable cancellation = () -> {
+            closePage();
+            done = true;
+        };
+
+        private UserStreamIterator(RingCentralDriver driver, String filterQuery, int startIndex, int count,
+                                   boolean singlePage, Integer max) {
+            this.driver = driver;
+            this.filterQuery = filterQuery;
+            this.startIndex = startIndex;
+            this.count = count;
+            this.singlePage = singlePage;
+            this.max = max != null && max > 0 ? max : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextUser != null) {
+                return true;
+            }
+            if (max != null && returned >= max) {
+                closePage();
+                return false;
             }
+            while (nextUser == null) {
+                if (reader == null) {
+                    if (done) {
+                        return false;
+                    }
+                    openPage();
+                    continue;
+                }
+                try {
+                    nextUser = reader.nextUser();
+                } catch (RuntimeException e) {
+                    closePage();
+                    done = true;
+                    throw e;
+                }
+                if (nextUser == null) {
+                    finishPage();
+                }
+            }
+            return true;
         }
 
-        if (modifiedUser.getEmails() == null || modifiedUser.getEmails().isEmpty()) {
-            modifiedUser.setEmails(currentUser.getEmails());
+        @Override
+        public RingCentralUser next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            returned++;
+            RingCentralUser user = nextUser;
+            nextUser = null;
+            return user;
         }
 
-        if (modifiedUser.getAddresses() == null || modifiedUser.getAddresses().isEmpty()) {
-            modifiedUser.setAddresses(currentUser.getAddresses());
+        private void openPage() {
+            InputStream page = driver.executeStreamingGetRequest(RingCentralDriver.API_PATH +
+                    "Users?startIndex=" + startIndex + "&count=" + count + filterQuery);
+            if (page == null) {
+                done = true;
+            } else {
+                reader = new RingCentralListUsersReader(page);
+                // closes the connection if the caller stops reading before the end
+                driver.openListing(cancellation);
+            }
         }
 
-        if (modifiedUser.getPhoneNumbers() == null || modifiedUser.getPhoneNumbers().isEmpty()) {
-            modifiedUser.setPhoneNumbers(currentUser.getPhoneNumbers());
+        private void finishPage() {
+            int read = reader.getUsersRead();
+            Integer total = reader.getTotalResults();
+            closePage();
+            startIndex += read;
+            done = singlePage || read == 0 || (total != null && startIndex > total);
         }
 
-        if (modifiedUser.getActive() == null) {
-            modifiedUser.setActive(currentUser.getActive());
+        private void closePage() {
+            if (reader != null) {
+                driver.closeListing(cancellation);
+                reader.close();
+                reader = null;
+            }
+        }
+    }
+
+    /**
+     * Fetches up to {@code prefetch} pages ahead of the one being read, stepping by the size of
+     * the first page. Pages are handed on in order, filling in users a shorter page left out.
+     */
+    private static class PrefetchingUserPageIterator extends RingCentralPageIterator<RingCentralUser> {
+        private final RingCentralDriver driver;
+        private final String filterQuery;
+        private final int count;
+        private final int prefetch;
+        private final Integer max;
+        private final Deque<PendingPage> pending = new ArrayDeque<>();
+        private final Runnable cancellation = this::cancelPending;
+        private boolean firstPageRead;
+        private int pageSize;
+        private int nextStartIndex;
+        private int expectedStartIndex;
+        private int lastStartIndex;
+
+        private PrefetchingUserPageIterator(RingCentralDriver driver, String filterQuery, int count,
+                                            int prefetch, Integer max) {
+            super(max);
+            this.driver = driver;
+            this.filterQuery = filterQuery;
+            this.count = count;
+            this.prefetch = prefetch;
+            this.max = max != null && max > 0 ? max : null;
+        }
+
+        @Override
+        protected List<RingCentralUser> nextPage() {
+            if (!firstPageRead) {
+                firstPageRead = true;
+                ListUsersResponse first = fetchUserPage(driver, filterQuery, 1, count);
+                List<RingCentralUser> users = usersOf(first);
+                int total = first == null || first.getTotalResults() == null ? users.size() : first.getTotalResults();
+                if (max != null) {
+                    total = Math.min(total, max);
+                }
+                pageSize = users.size();
+                expectedStartIndex = nextStartIndex = 1 + users.size();
+                lastStartIndex = users.isEmpty() ? 0 : total;
+                fillBuffer();
+                return users;
+            }
+            PendingPage page = pending.peek();
+            if (page == null) {
+                driver.closeListing(cancellation);
+                return null;
+            }
+            if (page.startIndex > expectedStartIndex) {
+                List<RingCentralUser> missed = usersOf(fetchUserPage(driver, filterQuery, expectedStartIndex,
+                        page.startIndex - expectedStartIndex));
+                expectedStartIndex = missed.isEmpty() ? page.startIndex : expectedStartIndex + missed.size();
+                return missed;
+            }
+            pending.poll();
+            List<RingCentralUser> users;
+            try {
+                users = usersOf(RingCentralFutures.await(page.response));
+            } catch (RuntimeException e) {
+                cancelPending();
+                throw e;
+            }
+            expectedStartIndex = page.startIndex + users.size();
+            if (users.isEmpty()) {
+                // the listing ended before totalResults
+                cancelPending();
+                lastStartIndex = 0;
+            } else if (pending.isEmpty()) {
+                // continue from the first user not yet read, even if this page came back short
+                nextStartIndex = expectedStartIndex;
+            }
+            fillBuffer();
+            return users;
+        }
+
+        private void fillBuffer() {
+            while (pending.size() < prefetch && nextStartIndex <= lastStartIndex) {
+                final int startIndex = nextStartIndex;
+                pending.add(new PendingPage(startIndex, driver.getWorkerExecutor().submit(
+                        () -> fetchUserPage(driver, filterQuery, startIndex, count))));
+                nextStartIndex += pageSize;
+            }
+            if (!pending.isEmpty()) {
+                driver.openListing(cancellation);
+            }
+        }
+
+        private void cancelPending() {
+            for (PendingPage page : pending) {
+                page.response.cancel(true);
+            }
+            pending.clear();
+            driver.closeListing(cancellation);
+        }
+    }
+
+    private static final class PendingPage {
+        private final int startIndex;
+        private final Future<ListUsersResponse> response;
+
+        private PendingPage(int startIndex, Future<ListUsersResponse> response) {
+            this.startIndex = startIndex;
+            this.response = response;
         }
     }
 }
@@ -18,6 +18,7 @@ public class MetaInformation {
     private String created;
     private String lastModified;
     private String location;
+    private String version;
 
     public String getResourceType() {
         return resourceType;
@@ -50,4 +51,12 @@ public class MetaInformation {
     public void setLocation(String location) {
         this.location = location;
     }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,43 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.model.request;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.util.Collections;
+import java.util.List;
+
+public class BulkRequest {
+
+    private List<String> schemas = Collections.singletonList("urn:ietf:params:scim:api:messages:2.0:BulkRequest");
+
+    @SerializedName("Operations")
+    private List<BulkOperation> operations;
+
+    public List<String> getSchemas() {
+        return schemas;
+    }
+
+    public void setSchemas(List<String> schemas) {
+        this.schemas = schemas;
+    }
+
+    public List<BulkOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<BulkOperation> operations) {
+        this.operations = operations;
+    }
+}
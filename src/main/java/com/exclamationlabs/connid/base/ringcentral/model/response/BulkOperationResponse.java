@@ -0,0 +1,94 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.model.response;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.apache.commons.lang3.StringUtils;
+
+public class BulkOperationResponse {
+
+    private String method;
+    private String bulkId;
+    private String location;
+    private String status;
+    private JsonElement response;
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public String getBulkId() {
+        return bulkId;
+    }
+
+    public void setBulkId(String bulkId) {
+        this.bulkId = bulkId;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public JsonElement getResponse() {
+        return response;
+    }
+
+    public void setResponse(JsonElement response) {
+        this.response = response;
+    }
+
+    /**
+     * @return HTTP status of the operation, or 0 if it could not be read
+     */
+    public int getStatusCode() {
+        try {
+            return Integer.parseInt(StringUtils.trim(status));
+        } catch (NumberFormatException nfe) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return id from the location, or else from the returned resource
+     */
+    public String getResourceId() {
+        if (StringUtils.isNotBlank(location)) {
+            return StringUtils.substringAfterLast(StringUtils.removeEnd(location, "/"), "/");
+        }
+        if (response != null && response.isJsonObject()) {
+            JsonObject resource = response.getAsJsonObject();
+            if (resource.has("id") && !resource.get("id").isJsonNull()) {
+                return resource.get("id").getAsString();
+            }
+        }
+        return null;
+    }
+}
@@ -21,6 +21,8 @@ public class ListCallQueuesResponse {
 
     private String uri;
     private List<RingCentralCallQueue> records;
+    private PagingInformation paging;
+    private NavigationInformation navigation;
 
     public String getUri() {
         return uri;
@@ -37,4 +39,20 @@ public class ListCallQueuesResponse {
     public void setRecords(List<RingCentralCallQueue> records) {
         this.records = records;
     }
+
+    public PagingInformation getPaging() {
+        return paging;
+    }
+
+    public void setPaging(PagingInformation paging) {
+        this.paging = paging;
+    }
+
+    public NavigationInformation getNavigation() {
+        return navigation;
+    }
+
+    public void setNavigation(NavigationInformation navigation) {
+        this.navigation = navigation;
+    }
 }
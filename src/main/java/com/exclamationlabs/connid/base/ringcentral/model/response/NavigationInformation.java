@@ -0,0 +1,53 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+package com.exclamationlabs.connid.base.ringcentral.model.response;
+
+public class NavigationInformation {
+
+    private NavigationLink firstPage;
+    private NavigationLink nextPage;
+    private NavigationLink previousPage;
+    private NavigationLink lastPage;
+
+    public NavigationLink getFirstPage() {
+        return firstPage;
+    }
+
+    public void setFirstPage(NavigationLink firstPage) {
+        this.firstPage = firstPage;
+    }
+
+    public NavigationLink getNextPage() {
+        return nextPage;
+    }
+
+    public void setNextPage(NavigationLink nextPage) {
+        this.nextPage = nextPage;
+    }
+
+    public NavigationLink getPreviousPage() {
+        return previousPage;
+    }
+
+    public void setPreviousPage(NavigationLink previousPage) {
+        this.previousPage = previousPage;
+    }
+
+    public NavigationLink getLastPage() {
+        return lastPage;
+    }
+
+    public void setLastPage(NavigationLink lastPage) {
+        this.lastPage = lastPage;
+    }
+}
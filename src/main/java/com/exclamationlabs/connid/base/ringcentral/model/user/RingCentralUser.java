@@ -16,6 +16,7 @@ package com.exclamationlabs.connid.base.ringcentral.model.user;
 import com.exclamationlabs.connid.base.connector.model.IdentityModel;
 import com.exclamationlabs.connid.base.ringcentral.model.MetaInformation;
 import com.exclamationlabs.connid.base.ringcentral.model.RingCentralCallQueue;
+import com.exclamationlabs.connid.base.ringcentral.model.request.UserPatchOperation;
 import com.google.gson.annotations.SerializedName;
 
 import java.util.ArrayList;
@@ -38,6 +39,9 @@ public class RingCentralUser implements IdentityModel {
 
     private List<String> schemas;
 
+    // changes requested by an update, never sent as part of the user
+    private transient List<UserPatchOperation> patchOperations;
+
     public RingCentralUser() {
         this(false);
     }
@@ -146,6 +150,17 @@ public class RingCentralUser implements IdentityModel {
         this.schemas = schemas;
     }
 
+    /**
+     * @return null if the model was not built from an update
+     */
+    public List<UserPatchOperation> getPatchOperations() {
+        return patchOperations;
+    }
+
+    public void setPatchOperations(List<UserPatchOperation> patchOperations) {
+        this.patchOperations = patchOperations;
+    }
+
     @Override
     public boolean equals(Object input) {
         return identityEquals(RingCentralUser.class, this, input);
@@ -14,6 +14,7 @@
 package com.exclamationlabs.connid.base.ringcentral.model.user.extension;
 
 public class RingCentralUserExtension {
+    private String id;
     private String type;
 
     private Contact contact;
@@ -25,6 +26,14 @@ public class RingCentralUserExtension {
         regionalSettings.setTimeFormat("24h");
     }
 
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getType() {
         return type;
     }
@@ -0,0 +1,195 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral;
+
+import com.exclamationlabs.connid.base.ringcentral.configuration.RingCentralConfiguration;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.lang3.StringUtils;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.spi.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RingCentralBulkImportTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final AtomicInteger extensionsCreated = new AtomicInteger();
+    private final AtomicInteger extensionsDeleted = new AtomicInteger();
+    private final AtomicInteger usersCreated = new AtomicInteger();
+
+    @Before
+    public void setup() throws IOException {
+        // local stand-in for the RingCentral extension and SCIM endpoints
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/restapi/v1.0/account/~/extension", exchange -> {
+            if ("DELETE".equals(exchange.getRequestMethod())) {
+                extensionsDeleted.incrementAndGet();
+                respond(exchange, 204, null);
+            } else {
+                respond(exchange, 200, "{\"id\": " + (281950000 + extensionsCreated.incrementAndGet()) + "}");
+            }
+        });
+        server.createContext("/scim/v2/Users", exchange -> {
+            String body = read(exchange.getRequestBody());
+            if (body.contains("taken@dough.com")) {
+                respond(exchange, 409, "{\"detail\": \"User with this email already exists\"}");
+            } else {
+                respond(exchange, 201, "{\"id\": \"" + (281960000 + usersCreated.incrementAndGet()) + "\"}");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void test100CsvLineParsing() {
+        assertEquals(Arrays.asList("jane@dough.com", "Dough, Jr.", "say \"hi\"", ""),
+                RingCentralBulkImport.parseCsvLine("jane@dough.com,\"Dough, Jr.\",\"say \"\"hi\"\"\","));
+    }
+
+    @Test
+    public void test110JournalLineWithoutIdIsImportedAgain() throws IOException {
+        Path journal = folder.newFile("users.csv.journal").toPath();
+        Files.write(journal, "jane@dough.com\t281960001\njohn@dough.com".getBytes(StandardCharsets.UTF_8));
+        assertEquals(1, RingCentralBulkImport.readJournal(journal).size());
+        assertTrue(RingCentralBulkImport.readJournal(journal).contains("jane@dough.com"));
+    }
+
+    @Test
+    public void test200ImportResumesFromJournal() throws IOException {
+        Path input = folder.newFile("users.jsonl").toPath();
+        Files.write(input, Arrays.asList(
+                "{\"USER_NAME\": \"jane@dough.com\", \"EMAIL\": \"jane@dough.com\", \"GIVEN_NAME\": \"Jane\", \"ACTIVE\": true}",
+                "{\"USER_NAME\": \"john@dough.com\", \"EMAIL\": \"john@dough.com\", \"GIVEN_NAME\": \"John\"}",
+                "{\"USER_NAME\": \"taken@dough.com\", \"EMAIL\": \"taken@dough.com\"}",
+                "{\"USER_NAME\": \"nobody@dough.com\", \"UNKNOWN\": \"x\"}",
+                "{\"USER_NAME\": \"maybe@dough.com\", \"EMAIL\": \"maybe@dough.com\", \"ACTIVE\": \"yes\"}"),
+                StandardCharsets.UTF_8);
+        Path journal = input.resolveSibling("users.jsonl.journal");
+        Path errors = input.resolveSibling("users.jsonl.errors");
+
+        RingCentralBulkImport.Result first = new RingCentralBulkImport(connector(), 2).run(input, journal, errors);
+        assertEquals(2, first.getCreated());
+        assertEquals(3, first.getFailed());
+        assertEquals(2, Files.readAllLines(journal).size());
+        List<String> errorLines = Files.readAllLines(errors);
+        assertEquals(3, errorLines.size());
+        assertTrue(StringUtils.contains(errorLines.toString(), "UNKNOWN"));
+        assertTrue(StringUtils.contains(errorLines.toString(), "ACTIVE"));
+        // the failed SCIM create of taken@dough.com removed its extension again
+        assertEquals(3, extensionsCreated.get());
+        assertEquals(1, extensionsDeleted.get());
+
+        RingCentralBulkImport.Result second = new RingCentralBulkImport(connector(), 2).run(input, journal, errors);
+        assertEquals(0, second.getCreated());
+        assertEquals(2, second.getSkipped());
+        assertEquals(3, second.getFailed());
+        assertEquals(2, usersCreated.get());
+    }
+
+    @Test
+    public void test300ConfigurationPropertiesSetTyped() throws IOException {
+        Path file = folder.newFile("import.properties").toPath();
+        Files.write(file, Arrays.asList("serviceUrl=https://platform.ringcentral.com/", "oauth2Username=admin",
+                "userBulkSize= 20", "preferredCallQueuesOnly=true"), StandardCharsets.UTF_8);
+        RingCentralConfiguration configuration = RingCentralBulkImport.loadConfiguration(file);
+        assertEquals("https://platform.ringcentral.com/", configuration.getServiceUrl());
+        assertEquals("admin", configuration.getOauth2Username());
+        assertEquals(Integer.valueOf(20), configuration.getUserBulkSize());
+        assertEquals(Boolean.TRUE, configuration.getPreferredCallQueuesOnly());
+    }
+
+    @Test
+    public void test310InvalidConfigurationPropertiesRejected() throws IOException {
+        for (String line : Arrays.asList("serviceURL=https://platform.ringcentral.com/", "userBulkSize=many",
+                "preferredCallQueuesOnly=yes")) {
+            Path file = folder.newFile().toPath();
+            Files.write(file, Collections.singletonList(line), StandardCharsets.UTF_8);
+            try {
+                RingCentralBulkImport.loadConfiguration(file);
+                fail(line + " should be rejected");
+            } catch (ConnectorException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains(line.substring(0, line.indexOf('='))));
+            }
+        }
+    }
+
+    private RingCentralConnector connector() {
+        RingCentralConnector connector = new RingCentralConnector() {
+            @Override
+            public void init(Configuration configuration) {
+                setAuthenticator(null);
+                super.init(configuration);
+            }
+        };
+        RingCentralConfiguration configuration = new RingCentralConfiguration();
+        configuration.setServiceUrl("http://localhost:" + server.getAddress().getPort() + "/");
+        configuration.setOauth2Username("test");
+        configuration.setOauth2Password("test");
+        configuration.setTokenUrl("test");
+        configuration.setEncodedSecret("test");
+        configuration.setCurrentToken("test");
+        connector.init(configuration);
+        return connector;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private static String read(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        StringBuilder body = new StringBuilder();
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            body.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+        }
+        return body.toString();
+    }
+}
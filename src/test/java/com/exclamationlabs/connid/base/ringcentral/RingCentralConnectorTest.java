@@ -32,6 +32,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.util.*;
 
 import static com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralCallQueueAttribute.USER_MEMBERS;
+import static com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserAttribute.*;
 import static org.junit.Assert.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -173,35 +174,7 @@ public class RingCentralConnectorTest extends ConnectorMockRestTest {
 
     @Test
     public void test120UserModify() {
-        // modify requires a get prior to execution
-        String responseData = "{  \"schemas\" : [ \"urn:ietf:params:scim:schemas:core:2.0:User\", \"urn:ietf:params:scim:schemas:extension:enterprise:2.0:User\" ],\n" +
-                "  \"id\" : \"281950004\",\n" +
-                "  \"meta\" : {\n" +
-                "    \"resourceType\" : \"User\",\n" +
-                "    \"created\" : \"2020-07-27T22:06:56.619Z\",\n" +
-                "    \"lastModified\" : \"2020-07-27T22:06:56.619Z\",\n" +
-                "    \"location\" : \"https://platform.devtest.ringcentral.com/scim/v2/Users/281950004\"\n" +
-                "  },\n" +
-                "  \"userName\" : \"jane@dough.com\",\n" +
-                "  \"name\" : {\n" +
-                "    \"formatted\" : \"Jane Dough\",\n" +
-                "    \"familyName\" : \"Dough\",\n" +
-                "    \"givenName\" : \"Jane\"\n" +
-                "  },\n" +
-                "  \"active\" : false,\n" +
-                "  \"emails\" : [ {\n" +
-                "    \"value\" : \"jane@dough.com\",\n" +
-                "    \"type\" : \"work\"\n" +
-                "  } ],\n" +
-                "  \"phoneNumbers\" : [ {\n" +
-                "    \"value\" : \"104\",\n" +
-                "    \"type\" : \"other\"\n" +
-                "  } ],\n" +
-                "  \"urn:ietf:params:scim:schemas:extension:enterprise:2.0:User\" : {\n" +
-                "    \"department\" : \"Technology\"\n" +
-                "  }\n" +
-                "}";
-
+        // modify is sent as a single SCIM PATCH, without reading the user first
         String responseData2 = " { \"schemas\" : [ \"urn:ietf:params:scim:schemas:core:2.0:User\", \"urn:ietf:params:scim:schemas:extension:enterprise:2.0:User\" ],\n" +
                 "  \"id\" : \"281953004\",\n" +
                 "  \"meta\" : {\n" +
@@ -229,7 +202,7 @@ public class RingCentralConnectorTest extends ConnectorMockRestTest {
                 "    \"department\" : \"Technology\"\n" +
                 "  }\n" +
                 "}";
-        prepareMockResponse(Collections.emptyMap(), responseData, responseData2);
+        prepareMockResponse(Collections.emptyMap(), responseData2);
 
         Set<AttributeDelta> attributes = new HashSet<>();
         attributes.add(new AttributeDeltaBuilder().setName(RingCentralUserAttribute.GIVEN_NAME.name()).
@@ -390,6 +363,81 @@ public class RingCentralConnectorTest extends ConnectorMockRestTest {
     }
 
 
+    @Test
+    public void test145UserGetRequestedAttributesOnly() {
+        String responseData = "{  \"schemas\" : [ \"urn:ietf:params:scim:schemas:core:2.0:User\" ],\n" +
+                "  \"id\" : \"281950004\",\n" +
+                "  \"userName\" : \"jane@dough.com\",\n" +
+                "  \"active\" : false\n" +
+                "}";
+        prepareMockResponse(Collections.emptyMap(), responseData);
+
+        List<ConnectorObject> objects = new ArrayList<>();
+        ResultsHandler resultsHandler = object -> objects.add(object);
+
+        connector.executeQuery(ObjectClass.ACCOUNT, "281950004", resultsHandler,
+                new OperationOptionsBuilder().setAttributesToGet(ACTIVE.name()).build());
+        assertEquals(1, objects.size());
+        assertNotNull(objects.get(0).getAttributeByName(ACTIVE.name()));
+        assertNull(objects.get(0).getAttributeByName(CREATED.name()));
+        assertNull(objects.get(0).getAttributeByName(GIVEN_NAME.name()));
+    }
+
+    @Test
+    public void test150UserSyncOldestChangeFirst() {
+        String responseData = "{\n" +
+                "  \"totalResults\" : 2,\n" +
+                "  \"startIndex\" : 1,\n" +
+                "  \"itemsPerPage\" : 2,\n" +
+                "  \"Resources\" : [ {\n" +
+                "    \"id\" : \"281950005\",\n" +
+                "    \"userName\" : \"john@dough.com\",\n" +
+                "    \"meta\" : { \"lastModified\" : \"2020-07-29T10:00:00.000Z\" }\n" +
+                "  }, {\n" +
+                "    \"id\" : \"281950004\",\n" +
+                "    \"userName\" : \"jane@dough.com\",\n" +
+                "    \"meta\" : { \"lastModified\" : \"2020-07-28T10:00:00.000Z\" }\n" +
+                "  } ]\n" +
+                "}";
+        prepareMockResponse(Collections.emptyMap(), responseData);
+
+        List<SyncDelta> deltas = new ArrayList<>();
+        connector.sync(ObjectClass.ACCOUNT, new SyncToken("2020-07-27T22:06:56.619Z"), deltas::add,
+                new OperationOptionsBuilder().build());
+        assertEquals(2, deltas.size());
+        assertEquals("281950004", deltas.get(0).getUid().getUidValue());
+        assertEquals(SyncDeltaType.CREATE_OR_UPDATE, deltas.get(0).getDeltaType());
+        assertEquals("2020-07-29T10:00:00Z|281950005=2020-07-29T10:00:00Z", deltas.get(1).getToken().getValue());
+    }
+
+    @Test
+    public void test155UserSyncReadsBackOverOverlap() {
+        String responseData = "{\n" +
+                "  \"totalResults\" : 2,\n" +
+                "  \"startIndex\" : 1,\n" +
+                "  \"itemsPerPage\" : 2,\n" +
+                "  \"Resources\" : [ {\n" +
+                "    \"id\" : \"281950005\",\n" +
+                "    \"userName\" : \"john@dough.com\",\n" +
+                "    \"meta\" : { \"lastModified\" : \"2020-07-29T10:00:00.000Z\" }\n" +
+                "  }, {\n" +
+                "    \"id\" : \"281950004\",\n" +
+                "    \"userName\" : \"jane@dough.com\",\n" +
+                "    \"meta\" : { \"lastModified\" : \"2020-07-29T09:59:30.000Z\" }\n" +
+                "  } ]\n" +
+                "}";
+        prepareMockResponse(Collections.emptyMap(), responseData);
+
+        // jane's change was listed only after john's had been delivered
+        List<SyncDelta> deltas = new ArrayList<>();
+        connector.sync(ObjectClass.ACCOUNT, new SyncToken("2020-07-29T10:00:00Z|281950005=2020-07-29T10:00:00Z"),
+                deltas::add, new OperationOptionsBuilder().build());
+        assertEquals(1, deltas.size());
+        assertEquals("281950004", deltas.get(0).getUid().getUidValue());
+        assertEquals("2020-07-29T10:00:00Z|281950005=2020-07-29T10:00:00Z,281950004=2020-07-29T09:59:30Z",
+                deltas.get(0).getToken().getValue());
+    }
+
     @Test(expected=ConnectorException.class)
     public void test210GroupCreate() {
         Set<Attribute> attributes = new HashSet<>();
@@ -513,6 +561,96 @@ public class RingCentralConnectorTest extends ConnectorMockRestTest {
         assertTrue(StringUtils.isNotBlank(nameValues.get(0)));
     }
 
+    @Test
+    public void test335CallQueuesGetAllPages() {
+        String page1 = "{\n" +
+                "  \"records\" : [ {\n" +
+                "    \"id\" : \"703190005\",\n" +
+                "    \"extensionNumber\" : \"944\",\n" +
+                "    \"name\" : \"TestCallQueueGroup\"\n" +
+                "  } ],\n" +
+                "  \"paging\" : {\n" +
+                "    \"page\" : 1,\n" +
+                "    \"totalPages\" : 2,\n" +
+                "    \"perPage\" : 1,\n" +
+                "    \"totalElements\" : 2\n" +
+                "  },\n" +
+                "  \"navigation\" : {\n" +
+                "    \"nextPage\" : {\n" +
+                "      \"uri\" : \"https://platform.devtest.ringcentral.com/restapi/v1.0/account/298248004/call-queues?page=2&perPage=1\"\n" +
+                "    }\n" +
+                "  }\n" +
+                "}";
+        String page2 = "{\n" +
+                "  \"records\" : [ {\n" +
+                "    \"id\" : \"703190006\",\n" +
+                "    \"extensionNumber\" : \"945\",\n" +
+                "    \"name\" : \"OtherCallQueueGroup\"\n" +
+                "  } ],\n" +
+                "  \"paging\" : {\n" +
+                "    \"page\" : 2,\n" +
+                "    \"totalPages\" : 2,\n" +
+                "    \"perPage\" : 1,\n" +
+                "    \"totalElements\" : 2\n" +
+                "  }\n" +
+                "}";
+        prepareMockResponse(Collections.emptyMap(), page1, page2);
+
+        List<String> idValues = new ArrayList<>();
+        List<String> nameValues = new ArrayList<>();
+        ResultsHandler resultsHandler = ConnectorTestUtils.buildResultsHandler(idValues, nameValues);
+
+        connector.executeQuery(new ObjectClass("CallQueue"), "", resultsHandler, new OperationOptionsBuilder().build());
+        assertEquals(2, idValues.size());
+        assertTrue(idValues.contains("703190006"));
+    }
+
+    @Test
+    public void test337CallQueuesGetWithMembers() {
+        ((RingCentralConfiguration) connector.getConfiguration()).setCallQueueMemberHydration(2);
+        String queuesData = "{\n" +
+                "  \"records\" : [ {\n" +
+                "    \"id\" : \"703190005\",\n" +
+                "    \"name\" : \"TestCallQueueGroup\"\n" +
+                "  }, {\n" +
+                "    \"id\" : \"703190006\",\n" +
+                "    \"name\" : \"OtherCallQueueGroup\"\n" +
+                "  } ],\n" +
+                "  \"paging\" : { \"page\" : 1, \"totalPages\" : 1 }\n" +
+                "}";
+        String membersData = "{\n" +
+                "  \"records\" : [ { \"id\" : 303243004 } ],\n" +
+                "  \"paging\" : { \"page\" : 1, \"totalPages\" : 1 }\n" +
+                "}";
+        prepareMockResponse(Collections.emptyMap(), queuesData, membersData, membersData);
+
+        List<ConnectorObject> objects = new ArrayList<>();
+        connector.executeQuery(new ObjectClass("CallQueue"), "", objects::add, new OperationOptionsBuilder().build());
+        assertEquals(2, objects.size());
+        for (ConnectorObject object : objects) {
+            assertEquals(Collections.singletonList("303243004"),
+                    object.getAttributeByName(USER_MEMBERS.name()).getValue());
+        }
+    }
+
+    @Test
+    public void test338CallQueuesGetPreferredOnly() {
+        RingCentralConfiguration configuration = (RingCentralConfiguration) connector.getConfiguration();
+        configuration.setPreferredCallQueueIds("703190005, 703190005");
+        configuration.setPreferredCallQueuesOnly(true);
+        String queueData = "{\n" +
+                "  \"id\" : \"703190005\",\n" +
+                "  \"name\" : \"TestCallQueueGroup\"\n" +
+                "}";
+        prepareMockResponse(Collections.emptyMap(), queueData);
+
+        List<String> idValues = new ArrayList<>();
+        List<String> nameValues = new ArrayList<>();
+        ResultsHandler resultsHandler = ConnectorTestUtils.buildResultsHandler(idValues, nameValues);
+        connector.executeQuery(new ObjectClass("CallQueue"), "", resultsHandler, new OperationOptionsBuilder().build());
+        assertEquals(Collections.singletonList("703190005"), idValues);
+    }
+
     @Test
     public void test340CallQueueGet() {
         String responseData = "{\n" +
@@ -561,6 +699,39 @@ public class RingCentralConnectorTest extends ConnectorMockRestTest {
         assertTrue(StringUtils.isNotBlank(idValues.get(0)));
     }
 
+    @Test
+    public void test350CallQueuesForMemberFromMemberCache() {
+        ((RingCentralConfiguration) connector.getConfiguration()).setPreferredCallQueueIds("703190005");
+        String queuesData = "{\n" +
+                "  \"records\" : [ {\n" +
+                "    \"id\" : \"703190005\",\n" +
+                "    \"name\" : \"TestCallQueueGroup\"\n" +
+                "  }, {\n" +
+                "    \"id\" : \"703190006\",\n" +
+                "    \"name\" : \"NotPreferredGroup\"\n" +
+                "  } ],\n" +
+                "  \"paging\" : { \"page\" : 1, \"totalPages\" : 1 }\n" +
+                "}";
+        String membersData = "{\n" +
+                "  \"records\" : [ { \"id\" : 303243004 }, { \"id\" : 298248004 } ],\n" +
+                "  \"paging\" : { \"page\" : 1, \"totalPages\" : 1 }\n" +
+                "}";
+        // each lookup lists the call queues again; members come from the member cache
+        prepareMockResponse(Collections.emptyMap(), queuesData, membersData, queuesData, queuesData);
+
+        List<String> idValues = new ArrayList<>();
+        List<String> nameValues = new ArrayList<>();
+        ResultsHandler resultsHandler = ConnectorTestUtils.buildResultsHandler(idValues, nameValues);
+        connector.executeQuery(new ObjectClass("CallQueue"), USER_MEMBERS.name() + ":298248004",
+                resultsHandler, new OperationOptionsBuilder().build());
+        connector.executeQuery(new ObjectClass("CallQueue"), USER_MEMBERS.name() + ":303243004",
+                resultsHandler, new OperationOptionsBuilder().build());
+        connector.executeQuery(new ObjectClass("CallQueue"), USER_MEMBERS.name() + ":111111111",
+                resultsHandler, new OperationOptionsBuilder().build());
+
+        assertEquals(Arrays.asList("703190005", "703190005"), idValues);
+    }
+
     @Test(expected=ConnectorException.class)
     public void test390CallQueueDelete() {
         connector.delete(new ObjectClass("CallQueue"), new Uid("1234"), new OperationOptionsBuilder().build());
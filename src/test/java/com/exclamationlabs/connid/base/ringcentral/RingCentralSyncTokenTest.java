@@ -0,0 +1,48 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral;
+
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class RingCentralSyncTokenTest {
+
+    @Test
+    public void test100ChangesInOverlapDeliveredOnce() {
+        RingCentralSyncToken token = RingCentralSyncToken.parse("2020-07-29T10:00:00Z|281950005=2020-07-29T10:00:00Z");
+        assertEquals(Instant.parse("2020-07-29T09:59:00Z"), token.getQueryStart());
+
+        assertFalse(token.deliver("281950005", Instant.parse("2020-07-29T10:00:00Z")));
+        assertTrue(token.deliver("281950006", Instant.parse("2020-07-29T09:59:30Z")));
+        assertTrue(token.deliver("281950005", Instant.parse("2020-07-29T10:00:30Z")));
+        assertEquals("2020-07-29T10:00:30Z|281950006=2020-07-29T09:59:30Z,281950005=2020-07-29T10:00:30Z",
+                token.toSyncToken().getValue());
+    }
+
+    @Test
+    public void test110OlderChangesPrunedWhenWatermarkAdvances() {
+        RingCentralSyncToken token = new RingCentralSyncToken(Instant.parse("2020-07-29T10:00:00Z"));
+        for (int second = 0; second < 60; second++) {
+            token.deliver("u" + second, Instant.parse("2020-07-29T10:00:00Z").plusSeconds(second));
+        }
+        assertEquals(60, token.getDeliveredCount());
+
+        token.deliver("u120", Instant.parse("2020-07-29T10:02:00Z"));
+        assertEquals(1, token.getDeliveredCount());
+        assertEquals("2020-07-29T10:02:00Z|u120=2020-07-29T10:02:00Z", token.toSyncToken().getValue());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral;
+
+import com.exclamationlabs.connid.base.connector.BaseConnector;
+import com.exclamationlabs.connid.base.ringcentral.driver.rest.RingCentralUserInvocator;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.identityconnectors.framework.common.objects.Uid;
+import org.identityconnectors.framework.common.objects.filter.Filter;
+import org.identityconnectors.framework.common.objects.filter.FilterBuilder;
+import org.junit.Test;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.List;
+
+import static com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserAttribute.*;
+import static org.junit.Assert.*;
+
+public class RingCentralUserFilterTranslatorTest {
+
+    private static String translateOne(Filter filter) throws UnsupportedEncodingException {
+        List<String> queries = new RingCentralUserFilterTranslator().translate(filter);
+        assertEquals(1, queries.size());
+        String prefix = RingCentralUserInvocator.SCIM_FILTER_ATTRIBUTE + BaseConnector.FILTER_SEPARATOR;
+        assertTrue(queries.get(0).startsWith(prefix));
+        String encoded = queries.get(0).substring(prefix.length());
+        assertFalse(encoded.contains(BaseConnector.FILTER_SEPARATOR));
+        return URLDecoder.decode(encoded, "UTF-8");
+    }
+
+    @Test
+    public void test100UidPassedAsPlainId() {
+        assertEquals("281950004", new RingCentralUserFilterTranslator()
+                .translate(FilterBuilder.equalTo(new Uid("281950004"))).get(0));
+    }
+
+    @Test
+    public void test200SingleExpressions() throws Exception {
+        assertEquals("userName sw \"jane\"",
+                translateOne(FilterBuilder.startsWith(AttributeBuilder.build(USER_NAME.name(), "jane"))));
+        assertEquals("emails.value co \"dough\"",
+                translateOne(FilterBuilder.contains(AttributeBuilder.build(EMAIL.name(), "dough"))));
+        assertEquals("meta.lastModified gt \"2020-07-27T22:06:56.619Z\"",
+                translateOne(FilterBuilder.greaterThan(AttributeBuilder.build(LAST_MODIFIED.name(), "2020-07-27T22:06:56.619Z"))));
+        assertEquals("userName eq \"a\\\"b\"",
+                translateOne(FilterBuilder.equalTo(AttributeBuilder.build(USER_NAME.name(), "a\"b"))));
+    }
+
+    @Test
+    public void test300Composition() throws Exception {
+        Filter filter = FilterBuilder.and(
+                FilterBuilder.equalTo(AttributeBuilder.build(ACTIVE.name(), Boolean.TRUE)),
+                FilterBuilder.or(
+                        FilterBuilder.startsWith(AttributeBuilder.build(FAMILY_NAME.name(), "Do")),
+                        FilterBuilder.equalTo(new Uid("281950004"))));
+        assertEquals("(active eq true) and ((name.familyName sw \"Do\") or (id eq \"281950004\"))",
+                translateOne(filter));
+    }
+
+    @Test
+    public void test400UnsupportedLeftToFramework() {
+        assertTrue(new RingCentralUserFilterTranslator().translate(
+                FilterBuilder.equalTo(AttributeBuilder.build(REGION.name(), "CO"))).isEmpty());
+        assertTrue(new RingCentralUserFilterTranslator().translate(
+                FilterBuilder.not(FilterBuilder.equalTo(AttributeBuilder.build(USER_NAME.name(), "jane")))).isEmpty());
+    }
+}
@@ -0,0 +1,76 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.adapter;
+
+import com.exclamationlabs.connid.base.ringcentral.model.request.UserPatchOperation;
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUserEmail;
+import org.identityconnectors.framework.common.objects.Attribute;
+import org.identityconnectors.framework.common.objects.AttributeBuilder;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.exclamationlabs.connid.base.ringcentral.attribute.RingCentralUserAttribute.*;
+import static org.junit.Assert.*;
+
+public class RingCentralUsersAdapterTest {
+
+    @Test
+    public void test100OnlyChangedValuesArePatched() {
+        Set<Attribute> attributes = new HashSet<>();
+        attributes.add(AttributeBuilder.build(ACTIVE.name(), false));
+
+        List<UserPatchOperation> operations = RingCentralUsersAdapter.buildPatchOperations(
+                attributes, Collections.emptySet(), Collections.emptySet());
+        assertEquals(1, operations.size());
+        assertEquals("replace", operations.get(0).getOp());
+        assertEquals("active", operations.get(0).getPath());
+        assertEquals(false, operations.get(0).getValue());
+    }
+
+    @Test
+    public void test110ClearedValuesAreRemoved() {
+        Set<Attribute> attributes = new HashSet<>();
+        attributes.add(AttributeBuilder.build(GIVEN_NAME.name()));
+        attributes.add(AttributeBuilder.build(USER_NAME.name()));
+        attributes.add(AttributeBuilder.build(LOCALITY.name()));
+
+        List<UserPatchOperation> operations = RingCentralUsersAdapter.buildPatchOperations(
+                attributes, Collections.emptySet(), Collections.emptySet());
+        // userName is required and a partly cleared address is left alone
+        assertEquals(1, operations.size());
+        assertEquals("remove", operations.get(0).getOp());
+        assertEquals("name.givenName", operations.get(0).getPath());
+        assertNull(operations.get(0).getValue());
+    }
+
+    @Test
+    public void test120EmailReplacedAndMultiValueChangesApplied() {
+        Set<Attribute> attributes = new HashSet<>();
+        attributes.add(AttributeBuilder.build(EMAIL.name(), "jane@dough.com"));
+        Set<Attribute> added = Collections.singleton(AttributeBuilder.build(PHONE_NUMBER.name(), "104"));
+        Set<Attribute> removed = Collections.singleton(AttributeBuilder.build(EMAIL.name(), "old\"@dough.com"));
+
+        List<UserPatchOperation> operations = RingCentralUsersAdapter.buildPatchOperations(attributes, added, removed);
+        assertEquals(3, operations.size());
+        assertEquals("emails", operations.get(0).getPath());
+        RingCentralUserEmail email = (RingCentralUserEmail) ((List<?>) operations.get(0).getValue()).get(0);
+        assertEquals("jane@dough.com", email.getValue());
+        assertEquals("work", email.getType());
+        assertEquals("remove", operations.get(1).getOp());
+        assertEquals("emails[value eq \"old\\\"@dough.com\"]", operations.get(1).getPath());
+        assertEquals("add", operations.get(2).getOp());
+        assertEquals("phoneNumbers", operations.get(2).getPath());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.model.request.CallQueueBulkAssign;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class RingCentralBulkAssignQueueTest {
+
+    @Test
+    public void test100ChangesInWindowMergedAndCancelled() throws Exception {
+        List<CallQueueBulkAssign> sent = Collections.synchronizedList(new ArrayList<>());
+        RingCentralBulkAssignQueue queue = new RingCentralBulkAssignQueue(300,
+                (driver, queueId, bulkAssign) -> sent.add(bulkAssign));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        Future<CallQueueBulkAssign> first = executor.submit(() ->
+                queue.assign(null, "703190005", Collections.emptyList(), Arrays.asList("101", "102"),
+                        Collections.emptyList()));
+        Future<CallQueueBulkAssign> second = executor.submit(() ->
+                queue.assign(null, "703190005", Collections.singletonList("102"), Collections.singletonList("103"),
+                        Collections.singletonList("102")));
+        Future<CallQueueBulkAssign> third = executor.submit(() ->
+                queue.assign(null, "703190005", Collections.singletonList("104"), Collections.emptyList(),
+                        Collections.singletonList("104")));
+
+        CallQueueBulkAssign merged = first.get(2, TimeUnit.SECONDS);
+        assertSame(merged, second.get(2, TimeUnit.SECONDS));
+        assertSame(merged, third.get(2, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(1, sent.size());
+        assertEquals(Arrays.asList("101", "103"), merged.getAddedExtensionIds());
+        assertEquals(Collections.singletonList("104"), merged.getRemovedExtensionIds());
+    }
+
+    @Test(timeout = 10000)
+    public void test110ChangesWhileInFlightJoinNextBulkAssign() throws Exception {
+        CountDownLatch firstSent = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CallQueueBulkAssign> sent = Collections.synchronizedList(new ArrayList<>());
+        RingCentralBulkAssignQueue queue = new RingCentralBulkAssignQueue(0, (driver, queueId, bulkAssign) -> {
+            sent.add(bulkAssign);
+            if (sent.size() == 1) {
+                firstSent.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new ConnectorException(e);
+                }
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<CallQueueBulkAssign>> futures = new ArrayList<>();
+        futures.add(executor.submit(() ->
+                queue.assign(null, "703190005", null, Collections.singletonList("100"), Collections.emptyList())));
+        assertTrue(firstSent.await(2, TimeUnit.SECONDS));
+        for (int i = 1; i <= 3; i++) {
+            final String extensionId = "10" + i;
+            futures.add(executor.submit(() ->
+                    queue.assign(null, "703190005", null, Collections.singletonList(extensionId), Collections.emptyList())));
+        }
+        // the later changes queue up behind the first bulk-assign
+        while (queue.getWaitingCallerCount("703190005") < 3) {
+            Thread.yield();
+        }
+        release.countDown();
+        for (Future<CallQueueBulkAssign> future : futures) {
+            future.get(2, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(2, sent.size());
+        assertEquals(3, sent.get(1).getAddedExtensionIds().size());
+    }
+
+    @Test(timeout = 10000)
+    public void test115LaterChangeOfSameMemberWins() throws Exception {
+        CountDownLatch firstSent = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CallQueueBulkAssign> sent = Collections.synchronizedList(new ArrayList<>());
+        RingCentralBulkAssignQueue queue = new RingCentralBulkAssignQueue(0, (driver, queueId, bulkAssign) -> {
+            sent.add(bulkAssign);
+            if (sent.size() == 1) {
+                firstSent.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new ConnectorException(e);
+                }
+            }
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<CallQueueBulkAssign> first = executor.submit(() ->
+                queue.assign(null, "703190005", null, Collections.singletonList("100"), Collections.emptyList()));
+        assertTrue(firstSent.await(2, TimeUnit.SECONDS));
+
+        // queued behind the first bulk-assign, in this order
+        List<Future<CallQueueBulkAssign>> futures = new ArrayList<>();
+        List<List<String>> changes = Arrays.asList(
+                // 201 is a member: removed, then added back, which restores it
+                Arrays.asList("201", "-"), Arrays.asList("201", "+"),
+                // 202 membership unknown: added, then removed
+                Arrays.asList("202", "+"), Arrays.asList("202", "-"),
+                // 203 not a member: removed, then added
+                Arrays.asList("203", "-"), Arrays.asList("203", "+"));
+        ExecutorService callers = Executors.newFixedThreadPool(changes.size());
+        for (List<String> change : changes) {
+            List<String> member = Collections.singletonList(change.get(0));
+            Collection<String> current = "201".equals(change.get(0)) ? member :
+                    "203".equals(change.get(0)) ? Collections.emptyList() : null;
+            int waiting = queue.getWaitingCallerCount("703190005");
+            futures.add(callers.submit(() -> queue.assign(null, "703190005", current,
+                    "+".equals(change.get(1)) ? member : Collections.emptyList(),
+                    "-".equals(change.get(1)) ? member : Collections.emptyList())));
+            while (queue.getWaitingCallerCount("703190005") == waiting) {
+                Thread.yield();
+            }
+        }
+        release.countDown();
+        first.get(2, TimeUnit.SECONDS);
+        for (Future<CallQueueBulkAssign> future : futures) {
+            future.get(2, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        callers.shutdown();
+
+        assertEquals(2, sent.size());
+        assertEquals(Collections.singletonList("203"), sent.get(1).getAddedExtensionIds());
+        assertEquals(Collections.singletonList("202"), sent.get(1).getRemovedExtensionIds());
+    }
+
+    @Test
+    public void test120FailureReachesEveryCaller() throws Exception {
+        RingCentralBulkAssignQueue queue = new RingCentralBulkAssignQueue(200, (driver, queueId, bulkAssign) -> {
+            throw new ConnectorException("bulk-assign failed");
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<CallQueueBulkAssign>> futures = new ArrayList<>();
+        futures.add(executor.submit(() ->
+                queue.assign(null, "703190005", null, Collections.singletonList("101"), Collections.emptyList())));
+        futures.add(executor.submit(() ->
+                queue.assign(null, "703190005", null, Collections.singletonList("102"), Collections.emptyList())));
+        for (Future<CallQueueBulkAssign> future : futures) {
+            try {
+                future.get(2, TimeUnit.SECONDS);
+                fail("bulk-assign failure should be raised");
+            } catch (ExecutionException e) {
+                assertEquals("bulk-assign failed", e.getCause().getMessage());
+            }
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void test130FlushedQueueDropped() throws Exception {
+        List<String> sentTo = Collections.synchronizedList(new ArrayList<>());
+        RingCentralBulkAssignQueue queue = new RingCentralBulkAssignQueue(0,
+                (driver, queueId, bulkAssign) -> sentTo.add(queueId));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<CallQueueBulkAssign>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final String queueId = "70319000" + (i % 4);
+            futures.add(executor.submit(() ->
+                    queue.assign(null, queueId, null, Collections.singletonList("101"), Collections.emptyList())));
+        }
+        for (Future<CallQueueBulkAssign> future : futures) {
+            future.get(2, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, queue.getBufferedQueueCount());
+        assertTrue(sentTo.size() >= 4);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.model.request.BulkOperation;
+import com.exclamationlabs.connid.base.ringcentral.model.request.BulkRequest;
+import com.exclamationlabs.connid.base.ringcentral.model.response.BulkOperationResponse;
+import com.exclamationlabs.connid.base.ringcentral.model.response.BulkResponse;
+import com.google.gson.JsonObject;
+import org.identityconnectors.framework.common.exceptions.AlreadyExistsException;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class RingCentralBulkProcessorTest {
+
+    @Test
+    public void test100ConcurrentWritesShareOneRequest() throws Exception {
+        List<BulkRequest> sent = Collections.synchronizedList(new ArrayList<>());
+        RingCentralBulkProcessor processor = new RingCentralBulkProcessor(4, 5000, (driver, request) -> {
+            sent.add(request);
+            List<BulkOperationResponse> results = new ArrayList<>();
+            for (BulkOperation operation : request.getOperations()) {
+                results.add(result(operation.getBulkId(), "201", "https://platform.ringcentral.com/scim/v2" +
+                        operation.getPath() + "/" + operation.getData()));
+            }
+            // results may come back in any order
+            Collections.reverse(results);
+            return response(results);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final String userId = "28195000" + i;
+            futures.add(executor.submit(() -> processor.execute(null, "POST", "/Users", userId).getResourceId()));
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals("28195000" + i, futures.get(i).get(2, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, sent.size());
+        assertEquals(4, sent.get(0).getOperations().size());
+    }
+
+    @Test(timeout = 10000)
+    public void test110FailedOperationRaisesItsOwnError() throws Exception {
+        RingCentralBulkProcessor processor = new RingCentralBulkProcessor(2, 5000, (driver, request) -> {
+            JsonObject fault = new JsonObject();
+            fault.addProperty("detail", "Extension e-mail already exists on account");
+            BulkOperationResponse failed = result(request.getOperations().get(0).getBulkId(), "409", null);
+            failed.setResponse(fault);
+            return response(Arrays.asList(failed,
+                    result(request.getOperations().get(1).getBulkId(), "204", null)));
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> first = executor.submit(() -> processor.execute(null, "POST", "/Users", "jane"));
+        awaitWaiting(processor, 1);
+        assertEquals(204, processor.execute(null, "DELETE", "/Users/1234", null).getStatusCode());
+        try {
+            first.get(2, TimeUnit.SECONDS);
+            fail("duplicate create should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AlreadyExistsException);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void test120LoneWriteSentAfterWindow() {
+        RingCentralBulkProcessor processor = new RingCentralBulkProcessor(100, 50, (driver, request) ->
+                response(Collections.singletonList(result(request.getOperations().get(0).getBulkId(), "200",
+                        "https://platform.ringcentral.com/scim/v2/Users/1234"))));
+
+        assertEquals("1234", processor.execute(null, "PATCH", "/Users/1234", null).getResourceId());
+        assertEquals(0, processor.getWaitingOperationCount());
+    }
+
+    @Test(timeout = 10000)
+    public void test130ThrottledOperationsSentAgainAfterBackOff() throws Exception {
+        List<BulkRequest> sent = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> backOffs = Collections.synchronizedList(new ArrayList<>());
+        RingCentralBulkProcessor processor = new RingCentralBulkProcessor(3, 5000, (driver, request) -> {
+            sent.add(request);
+            List<BulkOperationResponse> results = new ArrayList<>();
+            for (BulkOperation operation : request.getOperations()) {
+                // the first request throttles everything but the delete
+                String status = sent.size() > 1 || "DELETE".equals(operation.getMethod()) ? "200" :
+                        "POST".equals(operation.getMethod()) ? "429" : "503";
+                results.add(result(operation.getBulkId(), status, null));
+            }
+            return response(results);
+        }) {
+            @Override
+            void backOff(RingCentralDriver driver, RingCentralThrottledException throttled, long backoffMillis) {
+                backOffs.add(throttled.getStatusCode());
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<BulkOperationResponse> create = executor.submit(() -> processor.execute(null, "POST", "/Users", "jane"));
+        awaitWaiting(processor, 1);
+        Future<BulkOperationResponse> patch = executor.submit(() ->
+                processor.execute(null, "PATCH", "/Users/1234", null));
+        awaitWaiting(processor, 2);
+        assertEquals(200, processor.execute(null, "DELETE", "/Users/5678", null).getStatusCode());
+
+        assertEquals(200, create.get(2, TimeUnit.SECONDS).getStatusCode());
+        try {
+            patch.get(2, TimeUnit.SECONDS);
+            fail("a 503 is not retried for a patch");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RingCentralThrottledException);
+        }
+        executor.shutdown();
+        assertEquals(2, sent.size());
+        assertEquals(1, sent.get(1).getOperations().size());
+        assertEquals("POST", sent.get(1).getOperations().get(0).getMethod());
+        assertEquals(Collections.singletonList(429), backOffs);
+    }
+
+    @Test(timeout = 10000)
+    public void test140NotFoundIgnoredForDeleteOnly() throws Exception {
+        RingCentralBulkProcessor processor = new RingCentralBulkProcessor(2, 5000, (driver, request) -> {
+            List<BulkOperationResponse> results = new ArrayList<>();
+            for (BulkOperation operation : request.getOperations()) {
+                JsonObject fault = new JsonObject();
+                fault.addProperty("detail", "User is not found");
+                BulkOperationResponse missing = result(operation.getBulkId(), "404", null);
+                missing.setResponse(fault);
+                results.add(missing);
+            }
+            return response(results);
+        });
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> patch = executor.submit(() -> processor.execute(null, "PATCH", "/Users/1234", null));
+        awaitWaiting(processor, 1);
+        assertEquals(404, processor.execute(null, "DELETE", "/Users/1234", null).getStatusCode());
+        try {
+            patch.get(2, TimeUnit.SECONDS);
+            fail("patch of a missing user should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ConnectorException);
+        }
+        executor.shutdown();
+    }
+
+    private static void awaitWaiting(RingCentralBulkProcessor processor, int operations) {
+        while (processor.getWaitingOperationCount() < operations) {
+            Thread.yield();
+        }
+    }
+
+    private static BulkOperationResponse result(String bulkId, String status, String location) {
+        BulkOperationResponse result = new BulkOperationResponse();
+        result.setBulkId(bulkId);
+        result.setStatus(status);
+        result.setLocation(location);
+        return result;
+    }
+
+    private static BulkResponse response(List<BulkOperationResponse> results) {
+        BulkResponse response = new BulkResponse();
+        response.setOperations(results);
+        return response;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.connector.driver.rest.RestResponseData;
+import com.exclamationlabs.connid.base.ringcentral.configuration.RingCentralConfiguration;
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class RingCentralCreatePipelineTest {
+
+    @Test
+    public void test100PhasesOverlap() throws Exception {
+        CountDownLatch secondExtensionStarted = new CountDownLatch(1);
+        AtomicBoolean overlapped = new AtomicBoolean();
+        RingCentralUserInvocator invocator = new RingCentralUserInvocator() {
+            @Override
+            String createExtension(RingCentralDriver driver, RingCentralUser userModel) {
+                if ("jane1".equals(userModel.getUserName())) {
+                    secondExtensionStarted.countDown();
+                }
+                return "ext-" + userModel.getUserName();
+            }
+
+            @Override
+            String createScimUser(RingCentralDriver driver, RingCentralUser userModel, String extensionId) {
+                if ("ext-jane0".equals(extensionId)) {
+                    // one after the other, the second extension would only start after this returns
+                    try {
+                        overlapped.set(secondExtensionStarted.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new ConnectorException(e);
+                    }
+                }
+                return "user-" + extensionId;
+            }
+        };
+
+        List<CompletableFuture<String>> created = new ArrayList<>();
+        try (RingCentralCreatePipeline pipeline = new RingCentralCreatePipeline(null, invocator, 1)) {
+            for (int i = 0; i < 2; i++) {
+                created.add(pipeline.submit(user("jane" + i)));
+            }
+        }
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("user-ext-jane" + i, created.get(i).get());
+        }
+        assertTrue(overlapped.get());
+    }
+
+    @Test
+    public void test110FailedCreateDoesNotStopOthers() throws Exception {
+        RingCentralUserInvocator invocator = new RingCentralUserInvocator() {
+            @Override
+            String createExtension(RingCentralDriver driver, RingCentralUser userModel) {
+                return "ext-" + userModel.getUserName();
+            }
+
+            @Override
+            String createScimUser(RingCentralDriver driver, RingCentralUser userModel, String extensionId) {
+                if (extensionId.endsWith("bad")) {
+                    throw new ConnectorException("SCIM create failed");
+                }
+                return "user-" + extensionId;
+            }
+        };
+
+        CompletableFuture<String> bad;
+        CompletableFuture<String> good;
+        try (RingCentralCreatePipeline pipeline = new RingCentralCreatePipeline(null, invocator, 2)) {
+            bad = pipeline.submit(user("bad"));
+            good = pipeline.submit(user("good"));
+        }
+        assertEquals("user-ext-good", good.get());
+        try {
+            bad.get();
+            fail("failed create should be reported");
+        } catch (ExecutionException e) {
+            assertEquals("SCIM create failed", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void test200RejectedUserDeletesExtension() {
+        CreateDriver driver = new CreateDriver(new RingCentralFaultException("invalid user", 400));
+        try {
+            new RingCentralUserInvocator().createScimUser(driver, user("jane"), "ext-1");
+            fail("rejected create should fail");
+        } catch (RingCentralFaultException e) {
+            assertEquals(400, e.getStatusCode());
+        }
+        assertEquals(Collections.singletonList(RingCentralDriver.EXTENSION_API_PATH + "/ext-1"), driver.deleted);
+    }
+
+    @Test
+    public void test210UndecidedCreateKeepsExtension() {
+        List<RuntimeException> failures = Arrays.asList(
+                new RingCentralThrottledException("throttled", 429, null, null),
+                new RingCentralThrottledException("unavailable", 503, null, null),
+                new RingCentralFaultException("server error", 500),
+                new ConnectorException("read timed out"));
+        for (RuntimeException failure : failures) {
+            CreateDriver driver = new CreateDriver(failure);
+            try {
+                new RingCentralUserInvocator().createScimUser(driver, user("jane"), "ext-1");
+                fail("create should fail");
+            } catch (RuntimeException e) {
+                assertSame(failure, e);
+            }
+            assertTrue(failure.getMessage(), driver.deleted.isEmpty());
+        }
+    }
+
+    private static RingCentralUser user(String userName) {
+        RingCentralUser user = new RingCentralUser();
+        user.setUserName(userName);
+        return user;
+    }
+
+    private static class CreateDriver extends RingCentralDriver {
+        private final RuntimeException scimFailure;
+        private final List<String> deleted = new ArrayList<>();
+
+        private CreateDriver(RuntimeException scimFailure) {
+            this.scimFailure = scimFailure;
+            configuration = new RingCentralConfiguration();
+        }
+
+        @Override
+        public <T> RestResponseData<T> executePostRequest(String uri, Class<T> returnType, Object body) {
+            throw scimFailure;
+        }
+
+        @Override
+        public <T> RestResponseData<T> executeDeleteRequest(String uri, Class<T> returnType) {
+            deleted.add(uri);
+            return null;
+        }
+    }
+}
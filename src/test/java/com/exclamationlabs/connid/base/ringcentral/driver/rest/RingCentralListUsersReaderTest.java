@@ -0,0 +1,70 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class RingCentralListUsersReaderTest {
+
+    private static RingCentralListUsersReader reader(String json) {
+        return new RingCentralListUsersReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void test100ReadsUsersOneAtATime() {
+        RingCentralListUsersReader reader = reader("{\"schemas\":[\"urn:ietf:params:scim:api:messages:2.0:ListResponse\"]," +
+                "\"totalResults\":3,\"startIndex\":1,\"itemsPerPage\":2,\"Resources\":[" +
+                "{\"id\":\"1\",\"userName\":\"a@test.com\",\"name\":{\"givenName\":\"A\"}}," +
+                "{\"id\":\"2\",\"userName\":\"b@test.com\",\"active\":true}]}");
+
+        RingCentralUser first = reader.nextUser();
+        assertEquals("1", first.getId());
+        assertEquals("A", first.getName().getGivenName());
+        assertEquals(Integer.valueOf(3), reader.getTotalResults());
+        assertEquals("2", reader.nextUser().getId());
+        assertNull(reader.nextUser());
+        assertEquals(2, reader.getUsersRead());
+        reader.close();
+    }
+
+    @Test
+    public void test200TotalResultsAfterResources() {
+        RingCentralListUsersReader reader = reader("{\"Resources\":[{\"id\":\"1\"}],\"totalResults\":1}");
+        assertNotNull(reader.nextUser());
+        assertNull(reader.getTotalResults());
+        assertNull(reader.nextUser());
+        assertEquals(Integer.valueOf(1), reader.getTotalResults());
+    }
+
+    @Test
+    public void test300EmptyAndMissingResources() {
+        assertNull(reader("{\"totalResults\":0,\"Resources\":[]}").nextUser());
+        assertNull(reader("{\"totalResults\":0}").nextUser());
+        assertNull(reader("{\"Resources\":null}").nextUser());
+    }
+
+    @Test(expected = ConnectorException.class)
+    public void test400TruncatedResponse() {
+        RingCentralListUsersReader reader = reader("{\"Resources\":[{\"id\":\"1\"},{\"id\":");
+        assertNotNull(reader.nextUser());
+        reader.nextUser();
+    }
+}
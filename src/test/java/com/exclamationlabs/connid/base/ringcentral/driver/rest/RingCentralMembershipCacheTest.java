@@ -0,0 +1,55 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class RingCentralMembershipCacheTest {
+
+    @Test
+    public void test100BulkAssignAppliedLocally() {
+        RingCentralMembershipCache cache = new RingCentralMembershipCache(60000);
+        assertNull(cache.get("703190005"));
+
+        cache.put("703190005", Arrays.asList("1", "2"));
+        cache.assigned("703190005", Collections.singletonList("3"), Collections.singletonList("1"));
+        assertEquals(Arrays.asList("2", "3"), cache.get("703190005"));
+
+        // nothing cached, nothing to apply
+        cache.assigned("703190006", Collections.singletonList("3"), Collections.emptyList());
+        assertNull(cache.get("703190006"));
+    }
+
+    @Test
+    public void test200ExpiresAndInvalidates() {
+        AtomicLong now = new AtomicLong(1000);
+        RingCentralMembershipCache cache = new RingCentralMembershipCache(20, now::get);
+        cache.put("703190005", Collections.singletonList("1"));
+        now.addAndGet(19);
+        assertNotNull(cache.get("703190005"));
+        now.addAndGet(1);
+        assertNull(cache.get("703190005"));
+
+        cache = new RingCentralMembershipCache(60000);
+        cache.put("703190005", Collections.singletonList("1"));
+        cache.invalidate("703190005");
+        assertNull(cache.get("703190005"));
+    }
+}
@@ -0,0 +1,354 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.configuration.RingCentralConfiguration;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class RingCentralRateLimitTest {
+
+    @Test
+    public void test100UnseededDoesNotWait() {
+        RingCentralRateLimit rateLimit = new RingCentralRateLimit();
+        assertEquals(0, rateLimit.reserve());
+    }
+
+    @Test
+    public void test110RemainingHeaderLimitsBurst() {
+        RingCentralRateLimit rateLimit = new RingCentralRateLimit();
+        rateLimit.update(10, 2, 60L);
+
+        assertEquals(0, rateLimit.reserve());
+        assertEquals(0, rateLimit.reserve());
+        long wait = rateLimit.reserve();
+        assertTrue(wait > TimeUnit.SECONDS.toNanos(5));
+        assertTrue(wait <= TimeUnit.SECONDS.toNanos(6));
+    }
+
+    @Test
+    public void test120HeaderNeverRaisesLocalLevel() {
+        RingCentralRateLimit rateLimit = new RingCentralRateLimit();
+        rateLimit.update(10, 0, 60L);
+        rateLimit.update(10, 10, 60L);
+        assertTrue(rateLimit.getAvailablePermits() < 1);
+    }
+
+    @Test
+    public void test130NewLimitChangesRefillRate() {
+        RingCentralRateLimit rateLimit = new RingCentralRateLimit();
+        rateLimit.update(10, 10, 60L);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, rateLimit.reserve());
+        }
+        rateLimit.update(60, null, 60L);
+        long wait = rateLimit.reserve();
+        assertTrue(wait > 0);
+        assertTrue(wait <= TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void test140MissingHeadersKeepLearnedLimit() {
+        RingCentralRateLimit rateLimit = new RingCentralRateLimit();
+        rateLimit.update(10, 10, 60L);
+        rateLimit.update(null, 5, null);
+        assertEquals(5, rateLimit.getAvailablePermits(), 0.1);
+        rateLimit.update(null, null, null);
+        assertEquals(5, rateLimit.getAvailablePermits(), 0.1);
+    }
+
+    @Test
+    public void test200ConcurrentAcquireGrantsEachPermitOnce() throws Exception {
+        final int threads = 48;
+        final RingCentralRateLimit rateLimit = new RingCentralRateLimit();
+        rateLimit.update(32, 32, 60L);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger immediate = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (rateLimit.reserve() == 0) {
+                    immediate.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(32, immediate.get());
+    }
+
+    @Test
+    public void test210AcquireWakesWhenPermitRefills() {
+        AtomicLong now = new AtomicLong();
+        AtomicLong arrival = new AtomicLong();
+        List<Long> parked = new ArrayList<>();
+        RingCentralRateLimit rateLimit = new RingCentralRateLimit(new RingCentralRateLimitState() {
+            @Override
+            public long currentTime() {
+                return now.get();
+            }
+
+            @Override
+            public long get() {
+                return arrival.get();
+            }
+
+            @Override
+            public boolean compareAndSet(long expected, long updated) {
+                return arrival.compareAndSet(expected, updated);
+            }
+        }) {
+            @Override
+            void park(long waitNanos) {
+                parked.add(waitNanos);
+                now.addAndGet(waitNanos);
+            }
+        };
+        rateLimit.update(20, 0, 1L);
+
+        rateLimit.acquire();
+        // a permit every 50 ms, with 4 of them held back for interactive requests
+        assertEquals(Collections.singletonList(TimeUnit.MILLISECONDS.toNanos(250)), parked);
+    }
+
+    @Test
+    public void test300RegistryIsolatedPerAccount() {
+        RingCentralRateLimitRegistry first = RingCentralRateLimitRegistry.forAccount(
+                "https://platform.ringcentral.com/", "15550001");
+        RingCentralRateLimitRegistry same = RingCentralRateLimitRegistry.forAccount(
+                "https://PLATFORM.ringcentral.com", "15550001");
+        RingCentralRateLimitRegistry other = RingCentralRateLimitRegistry.forAccount(
+                "https://platform.ringcentral.com/", "15550002");
+
+        assertSame(first, same);
+        assertNotSame(first, other);
+        assertSame(first.get("Heavy"), same.get("heavy"));
+        assertNotSame(first.get("heavy"), other.get("heavy"));
+    }
+
+    @Test
+    public void test400SharedFileSplitsBudget() throws Exception {
+        File stateFile = File.createTempFile("ringcentral-rate", ".state");
+        stateFile.deleteOnExit();
+        RingCentralSharedRateLimitFile sharedFile = RingCentralSharedRateLimitFile.open(stateFile.getPath());
+
+        // two limiters on the same slot stand in for two nodes sharing one account
+        RingCentralRateLimit node1 = new RingCentralRateLimit(sharedFile.slot("account|heavy"));
+        RingCentralRateLimit node2 = new RingCentralRateLimit(sharedFile.slot("account|heavy"));
+        RingCentralRateLimit otherGroup = new RingCentralRateLimit(sharedFile.slot("account|light"));
+        node1.update(4, 4, 60L);
+        node2.update(4, 4, 60L);
+        otherGroup.update(4, 4, 60L);
+
+        assertEquals(0, node1.reserve());
+        assertEquals(0, node2.reserve());
+        assertEquals(0, node1.reserve());
+        assertEquals(0, node2.reserve());
+        assertTrue(node1.reserve() > 0);
+        assertEquals(0, otherGroup.reserve());
+    }
+
+    @Test
+    public void test500ConcurrencyGrowsWithHeadroomAndHalvesWhenDraining() {
+        RingCentralConcurrencyLimit concurrencyLimit = new RingCentralConcurrencyLimit();
+        assertEquals(RingCentralConcurrencyLimit.INITIAL_LIMIT, concurrencyLimit.getLimit());
+
+        for (int i = 0; i < 40; i++) {
+            concurrencyLimit.onResponse(50, 45);
+        }
+        int grown = concurrencyLimit.getLimit();
+        assertTrue(grown > RingCentralConcurrencyLimit.INITIAL_LIMIT);
+
+        concurrencyLimit.onResponse(50, 5);
+        assertEquals(grown / 2, concurrencyLimit.getLimit(), 1);
+
+        // cut only once per cooldown for a burst of draining responses
+        concurrencyLimit.onResponse(50, 4);
+        concurrencyLimit.onResponse(50, 3);
+        assertEquals(grown / 2, concurrencyLimit.getLimit(), 1);
+    }
+
+    @Test
+    public void test510InFlightBoundedByConcurrencyLimit() throws Exception {
+        RingCentralConcurrencyLimit concurrencyLimit = new RingCentralConcurrencyLimit();
+        for (int i = 0; i < RingCentralConcurrencyLimit.INITIAL_LIMIT; i++) {
+            concurrencyLimit.acquire();
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> blocked = executor.submit(concurrencyLimit::acquire);
+        try {
+            blocked.get(100, TimeUnit.MILLISECONDS);
+            fail("acquire should block while the limit is in flight");
+        } catch (TimeoutException expected) {
+            // still waiting for a slot
+        }
+        concurrencyLimit.release();
+        blocked.get(1, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test
+    public void test600BackgroundLeavesInteractiveReserve() {
+        RingCentralRateLimit rateLimit = new RingCentralRateLimit();
+        rateLimit.update(10, 10, 60L);
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(0, rateLimit.tryReserveBackground());
+        }
+        assertTrue(rateLimit.tryReserveBackground() > 0);
+
+        // a waiting background caller has not reserved anything ahead of interactive calls
+        assertEquals(0, rateLimit.reserve());
+        assertEquals(0, rateLimit.reserve());
+        assertTrue(rateLimit.reserve() > 0);
+    }
+
+    @Test
+    public void test610PriorityKeptAcrossRetries() {
+        RingCentralDriver driver = new RingCentralDriver();
+        driver.setNextRequestPriority(RingCentralRequestPriority.INTERACTIVE);
+
+        // a retry re-enters the driver while the first attempt is still on the stack
+        List<RingCentralRequestPriority> attempts = driver.withRequestPriority(first ->
+                Arrays.asList(first, driver.withRequestPriority(retry -> retry)));
+        assertEquals(Arrays.asList(RingCentralRequestPriority.INTERACTIVE, RingCentralRequestPriority.INTERACTIVE),
+                attempts);
+
+        assertEquals(RingCentralRequestPriority.BACKGROUND, driver.withRequestPriority(next -> next));
+    }
+
+    @Test
+    public void test700PenaltyHoldsBackWholeGroup() {
+        RingCentralRateLimit rateLimit = new RingCentralRateLimit();
+        rateLimit.update(50, 50, 60L);
+        assertTrue(rateLimit.penalize(TimeUnit.SECONDS.toNanos(30)));
+
+        long wait = rateLimit.reserve();
+        assertTrue(wait > TimeUnit.SECONDS.toNanos(29));
+        assertTrue(wait <= TimeUnit.SECONDS.toNanos(30));
+        assertTrue(rateLimit.tryReserveBackground() > wait);
+    }
+
+    @Test
+    public void test705WritesRetryOnlyWhenRejectedUnprocessed() {
+        assertTrue(RingCentralDriver.isRetryable("POST", 429));
+        assertFalse(RingCentralDriver.isRetryable("POST", 503));
+        assertFalse(RingCentralDriver.isRetryable("PATCH", 503));
+        assertTrue(RingCentralDriver.isRetryable("PUT", 503));
+        assertTrue(RingCentralDriver.isRetryable("GET", 503));
+        assertTrue(RingCentralDriver.isRetryable("DELETE", 503));
+    }
+
+    @Test
+    public void test707SlotReleasedDuringBackOff() throws Exception {
+        List<Integer> statuses = new ArrayList<>(Arrays.asList(429, 200));
+        List<Integer> freeSlotsDuringBackOff = new ArrayList<>();
+        RingCentralDriver driver = new RingCentralDriver() {
+            {
+                configuration = new RingCentralConfiguration();
+                configuration.setServiceUrl("https://platform.ringcentral.com/");
+                configuration.setOauth2Username("backoff-slot-test");
+            }
+
+            @Override
+            protected HttpClient createClient() {
+                return (HttpClient) Proxy.newProxyInstance(HttpClient.class.getClassLoader(),
+                        new Class<?>[]{HttpClient.class}, (proxy, method, args) -> {
+                            int status = statuses.remove(0);
+                            BasicHttpResponse response = new BasicHttpResponse(
+                                    new BasicStatusLine(HttpVersion.HTTP_1_1, status, null));
+                            response.setHeader("Content-Type", "application/json");
+                            response.setEntity(new StringEntity("{}", ContentType.APPLICATION_JSON));
+                            return response;
+                        });
+            }
+
+            @Override
+            void backOff(String endpoint, RingCentralThrottledException throttled, long backoffMillis) {
+                freeSlotsDuringBackOff.add(RingCentralRateLimitRegistry.forAccount("https://platform.ringcentral.com/",
+                        "backoff-slot-test").get(RingCentralRateLimitRegistry.DEFAULT_READ_GROUP)
+                        .getConcurrencyLimit().getAvailableSlots());
+            }
+        };
+
+        try (InputStream body = driver.executeStreamingGetRequest("scim/v2/Users")) {
+            assertNotNull(body);
+        }
+        assertEquals(Collections.singletonList(RingCentralConcurrencyLimit.INITIAL_LIMIT), freeSlotsDuringBackOff);
+    }
+
+    @Test
+    public void test710RetryAfterParsing() {
+        assertNull(RingCentralFaultProcessor.parseRetryAfter(null));
+        assertEquals(Long.valueOf(60000), RingCentralFaultProcessor.parseRetryAfter(new BasicHeader("Retry-After", "60")));
+        Long httpDate = RingCentralFaultProcessor.parseRetryAfter(
+                new BasicHeader("Retry-After", "Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals(Long.valueOf(0), httpDate);
+    }
+
+    @Test
+    public void test720BackoffIsJitteredAndCapped() {
+        long previous = 0;
+        for (int i = 0; i < 20; i++) {
+            long next = RingCentralDriver.nextBackoffMillis(previous);
+            assertTrue(next >= RingCentralDriver.THROTTLE_BACKOFF_BASE_MILLIS);
+            assertTrue(next <= RingCentralDriver.THROTTLE_BACKOFF_CAP_MILLIS);
+            assertTrue(next <= Math.max(RingCentralDriver.THROTTLE_BACKOFF_BASE_MILLIS, previous) * 3);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void test800EndpointGroupsAreLearned() {
+        String endpoint = RingCentralRateLimitRegistry.endpointKey("GET",
+                URI.create("https://platform.ringcentral.com/restapi/v1.0/account/~/call-queues/703190005/members?page=2"));
+        assertEquals("GET /restapi/v1.0/account/~/call-queues/{id}/members", endpoint);
+
+        RingCentralRateLimitRegistry registry = new RingCentralRateLimitRegistry("account", null);
+        assertEquals(RingCentralRateLimitRegistry.DEFAULT_READ_GROUP, registry.groupFor(endpoint));
+        assertEquals(RingCentralRateLimitRegistry.DEFAULT_WRITE_GROUP, registry.groupFor("POST /scim/v2/Users"));
+
+        registry.learnGroup(endpoint, "Medium");
+        assertEquals("medium", registry.groupFor(endpoint));
+    }
+}
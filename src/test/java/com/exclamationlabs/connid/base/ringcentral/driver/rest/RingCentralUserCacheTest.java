@@ -0,0 +1,87 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class RingCentralUserCacheTest {
+
+    private static RingCentralUser user(String id) {
+        RingCentralUser user = new RingCentralUser();
+        user.setId(id);
+        return user;
+    }
+
+    @Test
+    public void test100LeastRecentlyUsedEvicted() {
+        RingCentralUserCache cache = new RingCentralUserCache(2, 60000);
+        cache.put("1", user("1"), "W/\"1\"");
+        cache.put("2", user("2"), "W/\"1\"");
+        assertNotNull(cache.get("1"));
+        cache.put("3", user("3"), "W/\"1\"");
+
+        assertNotNull(cache.get("1"));
+        assertNull(cache.get("2"));
+        assertNotNull(cache.get("3"));
+    }
+
+    @Test
+    public void test200StaleEntryKeptForRevalidation() {
+        AtomicLong now = new AtomicLong(1000);
+        RingCentralUserCache cache = new RingCentralUserCache(10, 20, now::get);
+        cache.put("1", user("1"), "W/\"7\"");
+        now.addAndGet(19);
+        assertTrue(cache.get("1").isFresh());
+
+        now.addAndGet(1);
+        RingCentralUserCache.CachedUser stale = cache.get("1");
+        assertFalse(stale.isFresh());
+        assertEquals("W/\"7\"", stale.getEntityTag());
+
+        cache.revalidated("1");
+        assertTrue(cache.get("1").isFresh());
+        assertEquals("1", cache.get("1").getUser().getId());
+    }
+
+    @Test
+    public void test300InvalidateAndNotFound() {
+        RingCentralUserCache cache = new RingCentralUserCache(10, 60000);
+        cache.put("1", user("1"), null);
+        cache.invalidate("1");
+        assertNull(cache.get("1"));
+
+        cache.put("2", user("2"), null);
+        cache.put("2", null, null);
+        assertNull(cache.get("2"));
+    }
+
+    @Test
+    public void test400UsersCopiedInAndOut() {
+        RingCentralUserCache cache = new RingCentralUserCache(10, 60000);
+        RingCentralUser stored = user("1");
+        stored.setUserName("before");
+        cache.put("1", stored, null);
+        stored.setUserName("changed by caller");
+
+        RingCentralUser read = cache.get("1").getUser();
+        assertEquals("before", read.getUserName());
+        read.setUserName("changed by reader");
+        assertEquals("before", cache.get("1").getUser().getUserName());
+    }
+}
@@ -0,0 +1,290 @@
+/*
+    Copyright 2021 Exclamation Labs
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+        http://www.apache.org/licenses/LICENSE-2.0
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+*/
+
+package com.exclamationlabs.connid.base.ringcentral.driver.rest;
+
+import com.exclamationlabs.connid.base.connector.driver.rest.RestResponseData;
+import com.exclamationlabs.connid.base.connector.results.ResultsFilter;
+import com.exclamationlabs.connid.base.connector.results.ResultsPaginator;
+import com.exclamationlabs.connid.base.ringcentral.configuration.RingCentralConfiguration;
+import com.exclamationlabs.connid.base.ringcentral.model.request.UserPatchOperation;
+import com.exclamationlabs.connid.base.ringcentral.model.response.BulkOperationResponse;
+import com.exclamationlabs.connid.base.ringcentral.model.response.BulkResponse;
+import com.exclamationlabs.connid.base.ringcentral.model.user.RingCentralUser;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.exceptions.UnknownUidException;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RingCentralUserInvocatorTest {
+
+    private static List<String> userIds(Iterable<RingCentralUser> users) {
+        List<String> ids = new ArrayList<>();
+        for (RingCentralUser user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> expectedIds(int from, int to) {
+        List<String> ids = new ArrayList<>();
+        for (int i = from; i <= to; i++) {
+            ids.add("u" + i);
+        }
+        return ids;
+    }
+
+    @Test
+    public void test100ListsEveryPage() {
+        FakeScimDriver driver = new FakeScimDriver(2500, 1000, null);
+        List<String> ids = userIds(new RingCentralUserInvocator().getAll(driver, new ResultsFilter(), null, null));
+
+        assertEquals(expectedIds(1, 2500), ids);
+        assertEquals(3, driver.requests.size());
+        assertTrue(driver.requests.get(2).contains("startIndex=2001"));
+    }
+
+    @Test
+    public void test110StopsAtMax() {
+        FakeScimDriver driver = new FakeScimDriver(2500, 1000, null);
+        List<String> ids = userIds(new RingCentralUserInvocator().getAll(driver, new ResultsFilter(), null, 1200));
+
+        assertEquals(expectedIds(1, 1200), ids);
+        assertEquals(2, driver.requests.size());
+    }
+
+    @Test
+    public void test120PaginatorReadsOnlyRequestedPage() {
+        FakeScimDriver driver = new FakeScimDriver(2500, 1000, null);
+        ResultsPaginator paginator = mock(ResultsPaginator.class);
+        when(paginator.hasPagination()).thenReturn(true);
+        when(paginator.getCurrentOffset()).thenReturn(11);
+        when(paginator.getPageSize()).thenReturn(5);
+
+        List<String> ids = userIds(new RingCentralUserInvocator().getAll(driver, new ResultsFilter(), paginator, null));
+
+        assertEquals(expectedIds(11, 15), ids);
+        assertEquals(Collections.singletonList("scim/v2/Users?startIndex=11&count=5"), driver.requests);
+    }
+
+    @Test
+    public void test200PrefetchStepsByServerPageSize() {
+        FakeScimDriver driver = new FakeScimDriver(1050, 100, 4);
+        try {
+            List<String> ids = userIds(new RingCentralUserInvocator().getAll(driver, new ResultsFilter(), null, null));
+            assertEquals(expectedIds(1, 1050), ids);
+            assertEquals(11, driver.requests.size());
+        } finally {
+            driver.close();
+        }
+    }
+
+    @Test
+    public void test210PrefetchReadsUsersLeftOutByShortPage() {
+        FakeScimDriver driver = new FakeScimDriver(1050, 100, 4);
+        driver.shortPageStartIndex = 301;
+        try {
+            List<String> ids = userIds(new RingCentralUserInvocator().getAll(driver, new ResultsFilter(), null, null));
+            assertEquals(expectedIds(1, 1050), ids);
+        } finally {
+            driver.close();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void test220AbandonedPrefetchIsCancelled() throws Exception {
+        FakeScimDriver driver = new FakeScimDriver(1050, 100, 4);
+        driver.holdLaterPages = new CountDownLatch(1);
+        driver.heldPages = new CountDownLatch(4);
+        try {
+            Iterator<RingCentralUser> users =
+                    new RingCentralUserInvocator().getAll(driver, new ResultsFilter(), null, null).iterator();
+            assertEquals("u1", users.next().getId());
+            assertTrue(driver.heldPages.await(5, TimeUnit.SECONDS));
+            driver.cancelOpenListings();
+            assertTrue(driver.interrupted.tryAcquire(4, 5, TimeUnit.SECONDS));
+        } finally {
+            driver.holdLaterPages.countDown();
+            driver.close();
+        }
+    }
+
+    @Test
+    public void test230AbandonedStreamIsClosed() {
+        FakeScimDriver driver = new FakeScimDriver(2500, 1000, null);
+        Iterator<RingCentralUser> users =
+                new RingCentralUserInvocator().getAll(driver, new ResultsFilter(), null, null).iterator();
+        assertEquals("u1", users.next().getId());
+        assertEquals(1, driver.openPages.get());
+
+        driver.cancelOpenListings();
+        assertEquals(0, driver.openPages.get());
+        assertFalse(users.hasNext());
+    }
+
+    @Test
+    public void test300ModifiedSinceScansAllOnlyWhenFilterRejected() {
+        FakeScimDriver driver = new FakeScimDriver(10, 1000, null);
+        driver.filterFailureStatus = 400;
+        new RingCentralUserInvocator().getModifiedSince(driver, Instant.parse("2020-07-29T10:00:00Z"));
+        assertEquals(2, driver.requests.size());
+        assertFalse(driver.requests.get(1).contains("filter="));
+
+        FakeScimDriver failing = new FakeScimDriver(10, 1000, null);
+        failing.filterFailureStatus = 500;
+        try {
+            new RingCentralUserInvocator().getModifiedSince(failing, Instant.parse("2020-07-29T10:00:00Z"));
+            fail("a server error should not turn into a full scan");
+        } catch (RingCentralFaultException e) {
+            assertEquals(500, e.getStatusCode());
+        }
+        assertEquals(1, failing.requests.size());
+    }
+
+    @Test
+    public void test310PatchOfMissingUserIsUnknown() {
+        RingCentralUser modified = new RingCentralUser();
+        UserPatchOperation operation = new UserPatchOperation();
+        operation.setOp("replace");
+        operation.setPath("active");
+        operation.setValue(false);
+        modified.setPatchOperations(Collections.singletonList(operation));
+        // not found fault left an empty response
+        try {
+            new RingCentralUserInvocator().update(new FakeScimDriver(0, 1000, null), "1234", modified);
+            fail("a missing user should be unknown");
+        } catch (UnknownUidException expected) {
+            // expected
+        }
+
+        FakeScimDriver driver = new FakeScimDriver(0, 1000, null) {
+            @Override
+            public <T> RestResponseData<T> executePatchRequest(String uri, Class<T> returnType, Object requestBody) {
+                throw new RingCentralFaultException("not found", 404);
+            }
+        };
+        try {
+            new RingCentralUserInvocator().update(driver, "1234", modified);
+            fail("a missing user should be unknown");
+        } catch (UnknownUidException expected) {
+            // expected
+        }
+
+        FakeScimDriver bulkDriver = new FakeScimDriver(0, 1000, null) {
+            @Override
+            protected RingCentralBulkProcessor getBulkProcessor() {
+                return new RingCentralBulkProcessor(1, 0, (d, request) -> {
+                    BulkOperationResponse result = new BulkOperationResponse();
+                    result.setBulkId(request.getOperations().get(0).getBulkId());
+                    result.setStatus("404");
+                    BulkResponse response = new BulkResponse();
+                    response.setOperations(Collections.singletonList(result));
+                    return response;
+                });
+            }
+        };
+        try {
+            new RingCentralUserInvocator().update(bulkDriver, "1234", modified);
+            fail("a missing user should be unknown");
+        } catch (UnknownUidException expected) {
+            // expected
+        }
+    }
+
+    /**
+     * Serves SCIM Users pages of {@code total} users, never more than {@code pageCap} per page.
+     */
+    private static class FakeScimDriver extends RingCentralDriver {
+        private static final Pattern START_INDEX = Pattern.compile("startIndex=(\\d+)");
+        private static final Pattern COUNT = Pattern.compile("count=(\\d+)");
+
+        private final int total;
+        private final int pageCap;
+        private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        private volatile int shortPageStartIndex;
+        private volatile CountDownLatch holdLaterPages;
+        private volatile CountDownLatch heldPages;
+        private final Semaphore interrupted = new Semaphore(0);
+        private final AtomicInteger openPages = new AtomicInteger();
+        private volatile int filterFailureStatus;
+
+        private FakeScimDriver(int total, int pageCap, Integer prefetch) {
+            this.total = total;
+            this.pageCap = pageCap;
+            configuration = new RingCentralConfiguration();
+            configuration.setUserListPrefetch(prefetch);
+        }
+
+        @Override
+        public InputStream executeStreamingGetRequest(String uri) {
+            requests.add(uri);
+            if (filterFailureStatus > 0 && uri.contains("filter=")) {
+                throw new RingCentralFaultException("filter failed", filterFailureStatus);
+            }
+            if (holdLaterPages != null && queryValue(START_INDEX, uri) > 1) {
+                if (heldPages != null) {
+                    heldPages.countDown();
+                }
+                try {
+                    holdLaterPages.await();
+                } catch (InterruptedException e) {
+                    interrupted.release();
+                    throw new ConnectorException(e);
+                }
+            }
+            openPages.incrementAndGet();
+            return new ByteArrayInputStream(page(uri).getBytes(StandardCharsets.UTF_8)) {
+                @Override
+                public void close() {
+                    openPages.decrementAndGet();
+                }
+            };
+        }
+
+        String page(String uri) {
+            int startIndex = queryValue(START_INDEX, uri);
+            int count = Math.min(queryValue(COUNT, uri), startIndex == shortPageStartIndex ? pageCap / 2 : pageCap);
+            StringBuilder resources = new StringBuilder();
+            int index = startIndex;
+            for (; index <= total && index < startIndex + count; index++) {
+                resources.append(index == startIndex ? "" : ",").append("{\"id\":\"u").append(index).append("\"}");
+            }
+            return "{\"totalResults\":" + total + ",\"startIndex\":" + startIndex +
+                    ",\"itemsPerPage\":" + (index - startIndex) + ",\"Resources\":[" + resources + "]}";
+        }
+
+        private static int queryValue(Pattern parameter, String uri) {
+            Matcher matcher = parameter.matcher(uri);
+            assertTrue(uri, matcher.find());
+            return Integer.parseInt(matcher.group(1));
+        }
+    }
+}